@@ -1,91 +1,112 @@
-import objects.Show;
 import objects.Ticket;
 import utility.AdminCommandHandler;
+import utility.BatchRunner;
 import utility.BuyerCommandHandler;
+import utility.CommandProcessor;
+import utility.ContiguousSeatIndex;
+import utility.DiskBackedShowRepository;
+import utility.InMemoryShowRepository;
+import utility.PhoneNumberIndex;
+import utility.ReplicationFollower;
+import utility.ReplicationLeader;
+import utility.ShowRepository;
 
-import java.util.Date;
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Clock;
 import java.util.HashMap;
 import java.util.Scanner;
 import java.util.UUID;
 
 public class main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        String batchFile = null;
+        String leaderPort = null;
+        String leaderAddress = null;
+        String closedShowsInMemory = null;
+        for (int i = 0; i < args.length; i += 2) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--batch":
+                    batchFile = value;
+                    break;
+                case "--leader":
+                    leaderPort = value;
+                    break;
+                case "--follower":
+                    leaderAddress = value;
+                    break;
+                case "--closed-shows-in-memory":
+                    closedShowsInMemory = value;
+                    break;
+                default:
+                    System.out.println("Unknown option: " + args[i]);
+                    return;
+            }
+            if (value == null) {
+                System.out.println("Missing value for option: " + args[i]);
+                return;
+            }
+        }
+
+        if (leaderAddress != null) {
+            // Serve reads from a replica of the leader at host:port
+            String[] hostAndPort = leaderAddress.split(":");
+            ReplicationFollower follower = new ReplicationFollower(hostAndPort[0], Integer.parseInt(hostAndPort[1]));
+            follower.start();
+            Scanner scanner = new Scanner(System.in);
+            System.out.println("Following " + leaderAddress + ", please enter your command.");
+            while (scanner.hasNextLine()) {
+                follower.execute(scanner.nextLine(), System.out);
+            }
+            follower.close();
+            return;
+        }
+
         // We use this hashmap as a mock DB
-        HashMap<Integer, Show> shows = new HashMap<>();
         HashMap<UUID, Ticket> tickets = new HashMap<>();
+        PhoneNumberIndex bookingsByPhone = new PhoneNumberIndex();
+        ContiguousSeatIndex showsBySeatsTogether = new ContiguousSeatIndex();
+        ShowRepository shows;
+        if (closedShowsInMemory != null) {
+            // Keep only the most recently used closed shows in memory and evict the others to disk
+            shows = new DiskBackedShowRepository(Integer.parseInt(closedShowsInMemory),
+                    Files.createTempDirectory("shows"), tickets, bookingsByPhone);
+        } else {
+            shows = new InMemoryShowRepository(new HashMap<>());
+        }
 
         // Initialise utility methods
-        AdminCommandHandler adminCommandHandler = new AdminCommandHandler(shows);
-        BuyerCommandHandler buyerCommandHandler = new BuyerCommandHandler(shows, tickets);
-        Scanner scanner = new Scanner(System.in);
+        AdminCommandHandler adminCommandHandler = new AdminCommandHandler(shows, tickets, bookingsByPhone,
+                showsBySeatsTogether);
+        BuyerCommandHandler buyerCommandHandler = new BuyerCommandHandler(shows, tickets, bookingsByPhone,
+                Clock.systemUTC(), showsBySeatsTogether);
+        ReplicationLeader replicationLeader = null;
+        if (leaderPort != null) {
+            replicationLeader = new ReplicationLeader(Integer.parseInt(leaderPort), 100000, shows);
+            replicationLeader.start();
+        }
+        CommandProcessor commandProcessor = new CommandProcessor(shows, adminCommandHandler, buyerCommandHandler,
+                replicationLeader);
+
+        if (batchFile != null) {
+            // Print through one large buffer instead of flushing the console on every line
+            PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out),
+                    1 << 16), false, StandardCharsets.UTF_8);
+            new BatchRunner(commandProcessor).run(Paths.get(batchFile), out);
+            return;
+        }
 
+        Scanner scanner = new Scanner(System.in);
         System.out.println("Welcome to the show booking system, please enter your command.");
         while (scanner.hasNextLine()) {
-            try {
-                String[] commandline = scanner.nextLine().split(" ");
-                switch (commandline[0]) {
-                    // Admin commands
-                    case "Setup": {
-                        if (commandline.length != 5) {
-                            System.out.println("Invalid params for Setup command");
-                            break;
-                        }
-                        // Setup 1 5 10 2
-                        Show show = adminCommandHandler.setup(Integer.parseInt(commandline[1]),
-                                Integer.parseInt(commandline[2]), Integer.parseInt(commandline[3]),
-                                Integer.parseInt(commandline[4]));
-                        System.out.println("Show " + show.getNumber() + " set up successfully");
-                        break;
-                    }
-                    case "View": {
-                        if (commandline.length != 2) {
-                            System.out.println("Invalid params for View command");
-                            break;
-                        }
-                        // View 1
-                        adminCommandHandler.viewAndPrintDetails(Integer.parseInt(commandline[1]));
-                        break;
-                    }
-                    // Buyer commands
-                    case "Availability": {
-                        if (commandline.length != 2) {
-                            System.out.println("Invalid params for Availability command");
-                            break;
-                        }
-                        // Availability 1
-                        buyerCommandHandler.retrieveAndPrintAvailability(Integer.parseInt(commandline[1]));
-                        break;
-                    }
-                    case "Book": {
-                        if (commandline.length != 4) {
-                            System.out.println("Invalid params for Book command");
-                            break;
-                        }
-                        // Book 1 98244587 A1,A2,A3
-                        Ticket ticket = buyerCommandHandler.book(Integer.parseInt(commandline[1]), commandline[2],
-                                commandline[3]);
-                        System.out.println("Your ticket number is: " + ticket.getTicketNumber());
-                        break;
-                    }
-                    case "Cancel": {
-                        if (commandline.length != 3) {
-                            System.out.println("Invalid params for Cancel command");
-                            break;
-                        }
-                        // Cancel <UUID> 98244587
-                        Ticket cancelledTicket = buyerCommandHandler.cancel(UUID.fromString(commandline[1]),
-                                commandline[2], new Date());
-                        System.out.println("Booking cancelled for ticket number: " + cancelledTicket.getTicketNumber());
-                        break;
-                    }
-                    default:
-                        System.out.println("Unknown command");
-                        break;
-                }
-            }
-            catch (Exception e) {
-                System.out.println(e);
-            }
+            commandProcessor.execute(scanner.nextLine(), System.out);
         }
     }
 }
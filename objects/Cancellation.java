@@ -0,0 +1,41 @@
+package objects;
+
+import java.util.List;
+
+public class Cancellation {
+    private Ticket ticket;
+    // Bookings made for waitlisted buyers from the freed seats, in the order they were made
+    private List<Ticket> waitlistBookings;
+    // Waitlisted requests that the bookings were made for, in the same order, to be notified once no lock is held
+    private List<WaitlistRequest> waitlistRequests;
+
+    public Cancellation(Ticket ticket, List<Ticket> waitlistBookings, List<WaitlistRequest> waitlistRequests) {
+        this.setTicket(ticket);
+        this.setWaitlistBookings(waitlistBookings);
+        this.setWaitlistRequests(waitlistRequests);
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public void setTicket(Ticket ticket) {
+        this.ticket = ticket;
+    }
+
+    public List<Ticket> getWaitlistBookings() {
+        return waitlistBookings;
+    }
+
+    public void setWaitlistBookings(List<Ticket> waitlistBookings) {
+        this.waitlistBookings = waitlistBookings;
+    }
+
+    public List<WaitlistRequest> getWaitlistRequests() {
+        return waitlistRequests;
+    }
+
+    public void setWaitlistRequests(List<WaitlistRequest> waitlistRequests) {
+        this.waitlistRequests = waitlistRequests;
+    }
+}
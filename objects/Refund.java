@@ -0,0 +1,50 @@
+package objects;
+
+import java.util.UUID;
+
+public class Refund {
+    // ID of the refunded ticket
+    private UUID ticketNumber;
+    private String phoneNumber;
+    private int showNumber;
+    private int numOfSeats;
+
+    public Refund(Ticket ticket) {
+        this.setTicketNumber(ticket.getTicketNumber());
+        this.setPhoneNumber(ticket.getPhoneNumber());
+        this.setShowNumber(ticket.getShow().getNumber());
+        this.setNumOfSeats(ticket.getSeatIndexes().length);
+    }
+
+    public UUID getTicketNumber() {
+        return ticketNumber;
+    }
+
+    public void setTicketNumber(UUID ticketNumber) {
+        this.ticketNumber = ticketNumber;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+
+    public int getShowNumber() {
+        return showNumber;
+    }
+
+    public void setShowNumber(int showNumber) {
+        this.showNumber = showNumber;
+    }
+
+    public int getNumOfSeats() {
+        return numOfSeats;
+    }
+
+    public void setNumOfSeats(int numOfSeats) {
+        this.numOfSeats = numOfSeats;
+    }
+}
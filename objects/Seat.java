@@ -3,12 +3,11 @@ package objects;
 public class Seat {
     // A-Z
     // 1-10
+    // Occupancy is tracked by the show, so a seat only describes the layout
     private String seatNumber;
-    private boolean isOccupied;
 
-    public Seat(String seatNumber, boolean isOccupied) {
+    public Seat(String seatNumber) {
         this.setSeatNumber(seatNumber);
-        this.setOccupied(isOccupied);
     }
 
     public String getSeatNumber() {
@@ -18,12 +17,4 @@ public class Seat {
     public void setSeatNumber(String seatNumber) {
         this.seatNumber = seatNumber;
     }
-
-    public boolean isOccupied() {
-        return isOccupied;
-    }
-
-    public void setOccupied(boolean occupied) {
-        isOccupied = occupied;
-    }
 }
@@ -10,10 +10,24 @@ public class Show {
     private ArrayList<Seat> seats;
     private ArrayList<Ticket> tickets;
     private int cancellationWindow;
+    // A cancelled show, or one that has run, takes no more bookings. Read without the monitor, as closing is final
+    private volatile boolean isClosed;
+    // Running occupancy counters, kept in step with book/cancel so stats never need a seat scan
+    private int seatsSold;
+    private int ticketsSold;
+    private int cancellations;
+    // Bitmask of the occupied seats in each row, where bit i is seat i + 1
+    private int[] occupiedSeatsPerRow;
+    private int seatsPerRow;
+    // Longest run of free seats next to each other in each row and in the whole show
+    private int[] longestFreeRunPerRow;
+    private int longestFreeRun;
 
-    public Show(int number, ArrayList<Seat> seats, ArrayList<Ticket> tickets, int cancellationWindow) {
+    public Show(int number, ArrayList<Seat> seats, int numOfRows, int seatsPerRow, ArrayList<Ticket> tickets,
+                int cancellationWindow) {
         this.setNumber(number);
         this.setSeats(seats);
+        this.setLayout(numOfRows, seatsPerRow);
         this.setCancellationWindow(cancellationWindow);
         this.setTickets(tickets);
     }
@@ -34,6 +48,23 @@ public class Show {
         this.seats = seats;
     }
 
+    /**
+     * Sets the layout of the seats, which are laid out row by row, and marks every seat as free
+     *
+     * @param numOfRows The number of rows
+     * @param seatsPerRow The number of seats in each row
+     */
+    public void setLayout(int numOfRows, int seatsPerRow) {
+        this.seatsPerRow = seatsPerRow;
+        this.occupiedSeatsPerRow = new int[numOfRows];
+        this.longestFreeRunPerRow = new int[numOfRows];
+        this.seatsSold = 0;
+        for (int row = 0; row < numOfRows; row++) {
+            this.updateLongestFreeRun(row);
+        }
+        this.updateLongestFreeRun();
+    }
+
     public int getCancellationWindow() {
         return cancellationWindow;
     }
@@ -50,31 +81,184 @@ public class Show {
         this.tickets = tickets;
     }
 
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    public void setClosed(boolean closed) {
+        isClosed = closed;
+    }
+
+    public int getSeatsSold() {
+        return seatsSold;
+    }
+
+    public int getTicketsSold() {
+        return ticketsSold;
+    }
+
+    public void setTicketsSold(int ticketsSold) {
+        this.ticketsSold = ticketsSold;
+    }
+
+    public int getCancellations() {
+        return cancellations;
+    }
+
+    public void setCancellations(int cancellations) {
+        this.cancellations = cancellations;
+    }
+
+    public int getNumOfRows() {
+        return occupiedSeatsPerRow.length;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    /**
+     * Returns the number of free seats in a row
+     *
+     * @param row The zero-based row index, where 0 is row A
+     * @return The number of seats in the row that are not occupied
+     */
+    public int getFreeSeatsInRow(int row) {
+        return seatsPerRow - Integer.bitCount(occupiedSeatsPerRow[row]);
+    }
+
+    /**
+     * Returns the longest run of free seats next to each other in a row
+     *
+     * @param row The zero-based row index, where 0 is row A
+     * @return The number of seats in the longest run
+     */
+    public int getLongestFreeRunInRow(int row) {
+        return longestFreeRunPerRow[row];
+    }
+
+    /**
+     * Returns the longest run of free seats next to each other in any row
+     *
+     * @return The number of seats in the longest run
+     */
+    public int getLongestFreeRun() {
+        return longestFreeRun;
+    }
+
+    /**
+     * Returns the percentage of seats sold for the show
+     *
+     * @return The fill rate of the show between 0 and 100
+     */
+    public double getFillRate() {
+        if (this.getSeats().isEmpty()) {
+            return 0;
+        }
+        return this.seatsSold * 100.0 / this.getSeats().size();
+    }
+
+    /**
+     * Returns the index of a seat in the show layout
+     *
+     * @param seatNumber The seat number, e.g. A1
+     * @return The index of the seat, or -1 if the show has no such seat
+     */
+    public int seatIndexOf(String seatNumber) {
+        if (seatNumber.length() < 2 || seatNumber.length() > 3) {
+            return -1;
+        }
+        int row = seatNumber.charAt(0) - 'A';
+        // Each seat has a single name, so A01 is not A1
+        if (seatNumber.charAt(1) == '0') {
+            return -1;
+        }
+        int column = 0;
+        for (int i = 1; i < seatNumber.length(); i++) {
+            char digit = seatNumber.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return -1;
+            }
+            column = column * 10 + digit - '0';
+        }
+        if (row < 0 || row >= this.getNumOfRows() || column < 1 || column > seatsPerRow) {
+            return -1;
+        }
+        return row * seatsPerRow + column - 1;
+    }
+
+    /**
+     * Checks if a seat is occupied
+     *
+     * @param seatIndex The index of the seat in the show layout
+     * @return The boolean value whether the seat is occupied
+     */
+    public synchronized boolean isOccupied(int seatIndex) {
+        return (occupiedSeatsPerRow[seatIndex / seatsPerRow] & (1 << (seatIndex % seatsPerRow))) != 0;
+    }
+
+    /**
+     * Adds a booking to the show and occupies its seats
+     *
+     * @param ticket The ticket to add
+     */
+    public synchronized void addBooking(Ticket ticket) {
+        this.getTickets().add(ticket);
+        for (short seatIndex : ticket.getSeatIndexes()) {
+            occupiedSeatsPerRow[seatIndex / seatsPerRow] |= 1 << (seatIndex % seatsPerRow);
+        }
+        this.updateLongestFreeRun(ticket);
+        this.seatsSold += ticket.getSeatIndexes().length;
+        this.ticketsSold++;
+    }
+
     /**
      * Cancels a specific booking for a given show
      *
      * @param ticketNumber The ticket number to cancel
      * @throws BookingException if the ticket number is not found
      */
-    public void cancelBooking(UUID ticketNumber) throws BookingException {
+    public synchronized void cancelBooking(UUID ticketNumber) throws BookingException {
         Optional<Ticket> toRemove = this.getTickets().stream().filter(t -> t.getTicketNumber().equals(ticketNumber)).findFirst();
         if (toRemove.isEmpty()) {
             // This should not happen
             throw new BookingException("Unexpected state: ticket with UUID " + ticketNumber + " not found.");
         }
         // Set seats to vacant
-        toRemove.get().getSeats().forEach(s -> s.setOccupied(false));
+        for (short seatIndex : toRemove.get().getSeatIndexes()) {
+            occupiedSeatsPerRow[seatIndex / seatsPerRow] &= ~(1 << (seatIndex % seatsPerRow));
+        }
+        this.updateLongestFreeRun(toRemove.get());
+        this.seatsSold -= toRemove.get().getSeatIndexes().length;
+        this.cancellations++;
         // Remove cancelled ticket
         this.getTickets().remove(toRemove.get());
     }
 
+    /**
+     * Cancels every booking for the show in a single pass and closes it for new bookings
+     *
+     * @return The cancelled tickets
+     */
+    public synchronized ArrayList<Ticket> cancelAllBookings() {
+        this.setClosed(true);
+        ArrayList<Ticket> cancelled = this.getTickets();
+        Arrays.fill(this.occupiedSeatsPerRow, 0);
+        Arrays.fill(this.longestFreeRunPerRow, seatsPerRow);
+        this.longestFreeRun = occupiedSeatsPerRow.length == 0 ? 0 : seatsPerRow;
+        this.seatsSold = 0;
+        this.cancellations += cancelled.size();
+        this.setTickets(new ArrayList<>());
+        return cancelled;
+    }
+
     /**
      * Checks if the specified phone number has an existing booking
      *
      * @param phoneNumber The phone number to check
      * @return The boolean value whether this phone number has a booking for the show
      */
-    public boolean hasBookedBefore(String phoneNumber) {
+    public synchronized boolean hasBookedBefore(String phoneNumber) {
         Optional<Ticket> existingBooking = this.getTickets().stream().filter(t -> t.getPhoneNumber()
                 .equals(phoneNumber)).findFirst();
         return existingBooking.isPresent();
@@ -85,9 +269,42 @@ public class Show {
      *
      * @return The hashmap containing available seats. The key will be the seat number while the value will be the seat
      */
-    public HashMap<String, Seat> getAvailableSeats() {
+    public synchronized HashMap<String, Seat> getAvailableSeats() {
         HashMap<String, Seat> availableSeats = new HashMap<>();
-        this.getSeats().stream().filter(s -> !s.isOccupied()).forEach(s -> availableSeats.put(s.getSeatNumber(), s));
+        for (int row = 0; row < occupiedSeatsPerRow.length; row++) {
+            for (int column = 0; column < seatsPerRow; column++) {
+                if ((occupiedSeatsPerRow[row] & (1 << column)) == 0) {
+                    Seat seat = this.getSeats().get(row * seatsPerRow + column);
+                    availableSeats.put(seat.getSeatNumber(), seat);
+                }
+            }
+        }
         return availableSeats;
     }
+
+    private void updateLongestFreeRun(Ticket ticket) {
+        for (short seatIndex : ticket.getSeatIndexes()) {
+            this.updateLongestFreeRun(seatIndex / seatsPerRow);
+        }
+        this.updateLongestFreeRun();
+    }
+
+    private void updateLongestFreeRun(int row) {
+        // Each step clears the last free seat of every run, so the number of steps is the longest run
+        int free = ~occupiedSeatsPerRow[row] & ((1 << seatsPerRow) - 1);
+        int longest = 0;
+        while (free != 0) {
+            free &= free << 1;
+            longest++;
+        }
+        longestFreeRunPerRow[row] = longest;
+    }
+
+    private void updateLongestFreeRun() {
+        int longest = 0;
+        for (int run : longestFreeRunPerRow) {
+            longest = Math.max(longest, run);
+        }
+        this.longestFreeRun = longest;
+    }
 }
@@ -0,0 +1,80 @@
+package objects;
+
+public class ShowStats {
+    // ID of the show
+    private int number;
+    private int numOfSeats;
+    private int seatsSold;
+    private int ticketsSold;
+    private int cancellations;
+    private boolean isClosed;
+
+    public ShowStats(Show show) {
+        this.setNumber(show.getNumber());
+        this.setNumOfSeats(show.getSeats().size());
+        this.setSeatsSold(show.getSeatsSold());
+        this.setTicketsSold(show.getTicketsSold());
+        this.setCancellations(show.getCancellations());
+        this.setClosed(show.isClosed());
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public void setNumber(int number) {
+        this.number = number;
+    }
+
+    public int getNumOfSeats() {
+        return numOfSeats;
+    }
+
+    public void setNumOfSeats(int numOfSeats) {
+        this.numOfSeats = numOfSeats;
+    }
+
+    public int getSeatsSold() {
+        return seatsSold;
+    }
+
+    public void setSeatsSold(int seatsSold) {
+        this.seatsSold = seatsSold;
+    }
+
+    public int getTicketsSold() {
+        return ticketsSold;
+    }
+
+    public void setTicketsSold(int ticketsSold) {
+        this.ticketsSold = ticketsSold;
+    }
+
+    public int getCancellations() {
+        return cancellations;
+    }
+
+    public void setCancellations(int cancellations) {
+        this.cancellations = cancellations;
+    }
+
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    public void setClosed(boolean closed) {
+        isClosed = closed;
+    }
+
+    /**
+     * Returns the percentage of seats sold for the show
+     *
+     * @return The fill rate of the show between 0 and 100
+     */
+    public double getFillRate() {
+        if (this.getNumOfSeats() == 0) {
+            return 0;
+        }
+        return this.getSeatsSold() * 100.0 / this.getNumOfSeats();
+    }
+}
@@ -1,20 +1,24 @@
 package objects;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.UUID;
 
 public class Ticket {
     private String phoneNumber;
     // ID of the ticket
     private UUID ticketNumber;
-    private ArrayList<Seat> seats;
-    private Date bookingTime;
+    // Indexes of the booked seats in the show layout
+    private short[] seatIndexes;
+    // Epoch millis
+    private long bookingTime;
+    // Epoch millis from which the booking can no longer be cancelled
+    private long cancellationDeadline;
+    private boolean isFinalized;
     private Show show;
 
-    public Ticket(String phoneNumber, UUID ticketNumber, ArrayList<Seat> seats, Date bookingTime, Show show) {
+    public Ticket(String phoneNumber, UUID ticketNumber, short[] seatIndexes, long bookingTime, Show show) {
         this.setPhoneNumber(phoneNumber);
-        this.setSeats(seats);
+        this.setSeatIndexes(seatIndexes);
         this.setTicketNumber(ticketNumber);
         this.setBookingTime(bookingTime);
         this.setShow(show);
@@ -36,22 +40,51 @@ public class Ticket {
         this.ticketNumber = ticketNumber;
     }
 
-    public ArrayList<Seat> getSeats() {
-        return seats;
+    public short[] getSeatIndexes() {
+        return seatIndexes;
     }
 
-    public void setSeats(ArrayList<Seat> seats) {
-        this.seats = seats;
+    public void setSeatIndexes(short[] seatIndexes) {
+        this.seatIndexes = seatIndexes;
     }
 
-    public Date getBookingTime() {
+    /**
+     * Returns the booked seats, resolved against the show layout
+     *
+     * @return The booked seats
+     */
+    public ArrayList<Seat> getSeats() {
+        ArrayList<Seat> seats = new ArrayList<>(seatIndexes.length);
+        for (short seatIndex : seatIndexes) {
+            seats.add(show.getSeats().get(seatIndex));
+        }
+        return seats;
+    }
+
+    public long getBookingTime() {
         return bookingTime;
     }
 
-    public void setBookingTime(Date bookingTime) {
+    public void setBookingTime(long bookingTime) {
         this.bookingTime = bookingTime;
     }
 
+    public long getCancellationDeadline() {
+        return cancellationDeadline;
+    }
+
+    public void setCancellationDeadline(long cancellationDeadline) {
+        this.cancellationDeadline = cancellationDeadline;
+    }
+
+    public boolean isFinalized() {
+        return isFinalized;
+    }
+
+    public void setFinalized(boolean finalized) {
+        isFinalized = finalized;
+    }
+
     public Show getShow() {
         return show;
     }
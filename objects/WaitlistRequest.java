@@ -0,0 +1,63 @@
+package objects;
+
+import java.util.function.Consumer;
+
+public class WaitlistRequest {
+    private String phoneNumber;
+    private int numOfSeats;
+    // Requests with a higher priority are served first
+    private int priority;
+    // Order in which the request joined the waitlist, used to break ties between equal priorities
+    private long arrival;
+    // Called with the new ticket once seats are assigned to the request
+    private Consumer<Ticket> onAssigned;
+
+    public WaitlistRequest(String phoneNumber, int numOfSeats, int priority, long arrival,
+                           Consumer<Ticket> onAssigned) {
+        this.setPhoneNumber(phoneNumber);
+        this.setNumOfSeats(numOfSeats);
+        this.setPriority(priority);
+        this.setArrival(arrival);
+        this.setOnAssigned(onAssigned);
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+
+    public int getNumOfSeats() {
+        return numOfSeats;
+    }
+
+    public void setNumOfSeats(int numOfSeats) {
+        this.numOfSeats = numOfSeats;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public long getArrival() {
+        return arrival;
+    }
+
+    public void setArrival(long arrival) {
+        this.arrival = arrival;
+    }
+
+    public Consumer<Ticket> getOnAssigned() {
+        return onAssigned;
+    }
+
+    public void setOnAssigned(Consumer<Ticket> onAssigned) {
+        this.onAssigned = onAssigned;
+    }
+}
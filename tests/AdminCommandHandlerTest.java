@@ -1,25 +1,33 @@
 package tests;
 
 import exceptions.BookingException;
+import exceptions.CancelBookingException;
 import exceptions.InvalidSetupException;
 import exceptions.NoSuchShowException;
+import exceptions.NoSuchTicketException;
+import objects.Refund;
 import objects.Show;
+import objects.ShowStats;
 import objects.Ticket;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Nested;
 import utility.AdminCommandHandler;
 import utility.BuyerCommandHandler;
+import utility.PhoneNumberIndex;
 
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.UUID;
 
 public class AdminCommandHandlerTest {
     private final HashMap<Integer, Show> shows = new HashMap<>();
     private final HashMap<UUID, Ticket> tickets = new HashMap<>();
+    private final PhoneNumberIndex bookingsByPhone = new PhoneNumberIndex();
 
-    AdminCommandHandler adminCommandHandler = new AdminCommandHandler(shows);
-    BuyerCommandHandler buyerCommandHandler = new BuyerCommandHandler(shows, tickets);
+    AdminCommandHandler adminCommandHandler = new AdminCommandHandler(shows, tickets, bookingsByPhone);
+    BuyerCommandHandler buyerCommandHandler = new BuyerCommandHandler(shows, tickets, bookingsByPhone);
 
     @Nested
     class SetupSuccessScenarios {
@@ -82,6 +90,38 @@ public class AdminCommandHandlerTest {
             Assertions.assertEquals(0, shows.size());
         }
 
+        @Test
+        public void setup_fail_numOfRowsBelow1() {
+            // Given a show with no rows and a show with a negative number of rows
+            // When the setup command is called
+            // Then both show setups should fail
+            Exception exception = Assertions.assertThrows(InvalidSetupException.class, () ->
+                    adminCommandHandler.setup(1, 0, 3, 2));
+            Assertions.assertEquals("Number of rows must be at least 1.", exception.getMessage());
+            exception = Assertions.assertThrows(InvalidSetupException.class, () ->
+                    adminCommandHandler.setup(2, -1, 3, 2));
+            Assertions.assertEquals("Number of rows must be at least 1.", exception.getMessage());
+
+            // And no shows should be created
+            Assertions.assertEquals(0, shows.size());
+        }
+
+        @Test
+        public void setup_fail_numOfSeatsBelow1() {
+            // Given a show with no seats per row and a show with a negative number of seats per row
+            // When the setup command is called
+            // Then both show setups should fail
+            Exception exception = Assertions.assertThrows(InvalidSetupException.class, () ->
+                    adminCommandHandler.setup(1, 3, 0, 2));
+            Assertions.assertEquals("Number of seats must be at least 1.", exception.getMessage());
+            exception = Assertions.assertThrows(InvalidSetupException.class, () ->
+                    adminCommandHandler.setup(2, 3, -1, 2));
+            Assertions.assertEquals("Number of seats must be at least 1.", exception.getMessage());
+
+            // And no shows should be created
+            Assertions.assertEquals(0, shows.size());
+        }
+
         @Test
         public void setup_fail_duplicateShow() throws InvalidSetupException {
             // Given a created show
@@ -166,4 +206,148 @@ public class AdminCommandHandlerTest {
                     viewAndPrintDetails(1));
         }
     }
+
+    @Nested
+    class ViewAndPrintDashboard {
+        @Test
+        public void viewAndPrintDashboard_success_orderedByFillRate() throws InvalidSetupException,
+                NoSuchShowException, BookingException {
+            // Given 3 shows of 10 seats each with 1, 3 and 2 seats booked
+            adminCommandHandler.setup(1, 1, 10, 2);
+            adminCommandHandler.setup(2, 1, 10, 2);
+            adminCommandHandler.setup(3, 1, 10, 2);
+            buyerCommandHandler.book(1, "92344321", "A1");
+            buyerCommandHandler.book(2, "92344321", "A1,A2,A3");
+            buyerCommandHandler.book(3, "92344321", "A1,A2");
+
+            // When the dashboard is viewed
+            List<ShowStats> dashboard = adminCommandHandler.viewAndPrintDashboard(shows.size());
+
+            // Then every show should be listed from the fullest show
+            Assertions.assertEquals(3, dashboard.size());
+            Assertions.assertEquals(2, dashboard.get(0).getNumber());
+            Assertions.assertEquals(3, dashboard.get(1).getNumber());
+            Assertions.assertEquals(1, dashboard.get(2).getNumber());
+            Assertions.assertEquals(30.0, dashboard.get(0).getFillRate());
+
+            // And when only the top 2 shows are viewed
+            dashboard = adminCommandHandler.viewAndPrintDashboard(2);
+
+            // Then only the 2 fullest shows should be listed
+            Assertions.assertEquals(2, dashboard.size());
+            Assertions.assertEquals(2, dashboard.get(0).getNumber());
+            Assertions.assertEquals(3, dashboard.get(1).getNumber());
+        }
+
+        @Test
+        public void viewAndPrintDashboard_success_countersFollowCancellation() throws InvalidSetupException,
+                NoSuchShowException, BookingException, NoSuchTicketException, CancelBookingException {
+            // Given a created show with 2 bookings
+            adminCommandHandler.setup(1, 2, 5, 2);
+            Ticket ticket = buyerCommandHandler.book(1, "92344321", "A1,A2,B1");
+            buyerCommandHandler.book(1, "92344322", "A3");
+
+            // When one of the bookings is cancelled
+            buyerCommandHandler.cancel(ticket.getTicketNumber(), "92344321", new Date());
+
+            // Then the show's counters should reflect the remaining booking
+            ShowStats stats = adminCommandHandler.viewAndPrintDashboard(1).get(0);
+            Assertions.assertEquals(1, stats.getSeatsSold());
+            Assertions.assertEquals(2, stats.getTicketsSold());
+            Assertions.assertEquals(1, stats.getCancellations());
+            Assertions.assertEquals(10.0, stats.getFillRate());
+            Assertions.assertEquals(4, shows.get(1).getFreeSeatsInRow(0));
+            Assertions.assertEquals(5, shows.get(1).getFreeSeatsInRow(1));
+        }
+    }
+
+    @Nested
+    class CancelShow {
+        @Test
+        public void cancelShow_success() throws InvalidSetupException, NoSuchShowException, BookingException {
+            // Given 2 created shows with bookings
+            adminCommandHandler.setup(1, 3, 3, 2);
+            adminCommandHandler.setup(2, 3, 3, 2);
+            buyerCommandHandler.book(1, "92344321", "A1,A2");
+            buyerCommandHandler.book(1, "92344322", "B1");
+            Ticket otherShowTicket = buyerCommandHandler.book(2, "92344321", "A1");
+
+            // When the first show is cancelled
+            List<Refund> refunds = adminCommandHandler.cancelShow(1);
+
+            // Then every ticket for the show should be refunded
+            Assertions.assertEquals(2, refunds.size());
+            Assertions.assertEquals(3, refunds.stream().mapToInt(Refund::getNumOfSeats).sum());
+
+            // And every seat for the show should be vacant again
+            Show show = shows.get(1);
+            Assertions.assertEquals(0, show.getTickets().size());
+            Assertions.assertEquals(9, show.getAvailableSeats().size());
+            Assertions.assertEquals(0, show.getSeatsSold());
+            Assertions.assertEquals(2, show.getCancellations());
+
+            // And only the bookings for the other show should remain
+            Assertions.assertEquals(1, tickets.size());
+            Assertions.assertEquals(List.of(otherShowTicket), buyerCommandHandler.retrieveAndPrintBookings("92344321"));
+        }
+
+        @Test
+        public void cancelShow_success_showClosedForBookings() throws InvalidSetupException, NoSuchShowException,
+                BookingException {
+            // Given a cancelled show
+            adminCommandHandler.setup(1, 3, 3, 2);
+            buyerCommandHandler.book(1, "92344321", "A1");
+            adminCommandHandler.cancelShow(1);
+
+            // When booking or joining the waitlist of the show
+            // Then an exception will be thrown
+            BookingException bookingException = Assertions.assertThrows(BookingException.class,
+                    () -> buyerCommandHandler.book(1, "92344322", "A1"));
+            Assertions.assertEquals("Show 1 is closed.", bookingException.getMessage());
+            Assertions.assertThrows(BookingException.class,
+                    () -> buyerCommandHandler.joinWaitlist(1, "92344322", 1, 0, t -> { }));
+
+            // And the show should take no seats
+            Assertions.assertTrue(shows.get(1).isClosed());
+            Assertions.assertEquals(0, shows.get(1).getTickets().size());
+        }
+
+        @Test
+        public void cancelShow_fail_noSuchShow() {
+            // When cancelling a non-existent show
+            // Then an exception will be thrown
+            Assertions.assertThrows(NoSuchShowException.class, () -> adminCommandHandler.cancelShow(1));
+        }
+    }
+
+    @Nested
+    class CloseShow {
+        @Test
+        public void closeShow_success() throws InvalidSetupException, NoSuchShowException, BookingException {
+            // Given a created show with a booking that can still be cancelled
+            adminCommandHandler.setup(1, 3, 3, 2);
+            Ticket ticket = buyerCommandHandler.book(1, "92344321", "A1,A2");
+
+            // When the show is closed
+            adminCommandHandler.closeShow(1);
+
+            // Then the booking should be final and can no longer be cancelled
+            Assertions.assertTrue(ticket.isFinalized());
+            Exception exception = Assertions.assertThrows(CancelBookingException.class, () ->
+                    buyerCommandHandler.cancel(ticket.getTicketNumber(), "92344321"));
+            Assertions.assertEquals("You cannot cancel your booking as it passed the window of: 2 minutes",
+                    exception.getMessage());
+
+            // And the show should take no more bookings
+            Assertions.assertThrows(BookingException.class, () -> buyerCommandHandler.book(1, "92344322", "B1"));
+            Assertions.assertEquals(7, shows.get(1).getAvailableSeats().size());
+        }
+
+        @Test
+        public void closeShow_fail_noSuchShow() {
+            // When closing a non-existent show
+            // Then an exception will be thrown
+            Assertions.assertThrows(NoSuchShowException.class, () -> adminCommandHandler.closeShow(1));
+        }
+    }
 }
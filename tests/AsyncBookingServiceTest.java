@@ -0,0 +1,254 @@
+package tests;
+
+import exceptions.BookingException;
+import exceptions.InvalidSetupException;
+import exceptions.NoSuchShowException;
+import objects.Cancellation;
+import objects.Show;
+import objects.Ticket;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import utility.AdminCommandHandler;
+import utility.AsyncBookingService;
+import utility.BookingJournal;
+import utility.BuyerCommandHandler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class AsyncBookingServiceTest {
+    private final HashMap<Integer, Show> shows = new HashMap<>();
+    private final HashMap<UUID, Ticket> tickets = new HashMap<>();
+
+    AdminCommandHandler adminCommandHandler = new AdminCommandHandler(shows);
+    BuyerCommandHandler buyerCommandHandler = new BuyerCommandHandler(shows, tickets);
+
+    private Path createJournalFile() throws IOException {
+        Path path = Files.createTempFile("bookings", ".journal");
+        path.toFile().deleteOnExit();
+        return path;
+    }
+
+    @Nested
+    class BookAsyncSuccessScenarios {
+        @Test
+        public void bookAsync_success_groupCommit() throws InvalidSetupException, IOException, InterruptedException,
+                ExecutionException {
+            // Given a created show and a service that waits up to 1 second for a batch of 10 to fill up
+            adminCommandHandler.setup(1, 2, 10, 2);
+            Path journalFile = createJournalFile();
+            BookingJournal journal = new BookingJournal(journalFile);
+            AsyncBookingService service = new AsyncBookingService(buyerCommandHandler, journal, 10, 1000);
+
+            // When 10 bookings are submitted
+            List<CompletableFuture<Ticket>> futures = new ArrayList<>();
+            for (int i = 1; i <= 10; i++) {
+                futures.add(service.bookAsync(1, "9234432" + (i - 1), "A" + i));
+            }
+            for (CompletableFuture<Ticket> future : futures) {
+                future.get();
+            }
+            service.close();
+
+            // Then every booking should be created
+            Assertions.assertEquals(10, tickets.size());
+            Assertions.assertEquals(10, shows.get(1).getSeatsSold());
+
+            // And the whole batch should be journalled with a single commit
+            Assertions.assertEquals(1, journal.getCommits());
+            List<String> records = Files.readAllLines(journalFile);
+            Assertions.assertEquals(10, records.size());
+            Assertions.assertEquals(BookingJournal.bookRecord(futures.get(0).get()), records.get(0));
+        }
+
+        @Test
+        public void cancelAsync_success() throws InvalidSetupException, IOException, InterruptedException,
+                ExecutionException {
+            // Given a created show and a booking made through the service
+            adminCommandHandler.setup(1, 2, 10, 2);
+            Path journalFile = createJournalFile();
+            AsyncBookingService service = new AsyncBookingService(buyerCommandHandler, new BookingJournal(journalFile),
+                    10, 0);
+            Ticket ticket = service.bookAsync(1, "92344321", "A1,A2").get();
+
+            // When the booking is cancelled through the service
+            Cancellation cancellation = service.cancelAsync(ticket.getTicketNumber(), "92344321").get();
+            service.close();
+
+            // Then the booking should be cancelled
+            Assertions.assertEquals(ticket, cancellation.getTicket());
+            Assertions.assertEquals(0, tickets.size());
+
+            // And both the booking and the cancellation should be journalled
+            Assertions.assertEquals(List.of(BookingJournal.bookRecord(ticket), BookingJournal.cancelRecord(ticket)),
+                    Files.readAllLines(journalFile));
+        }
+
+        @Test
+        public void cancelAsync_success_waitlistBookingsJournalled() throws InvalidSetupException, BookingException,
+                NoSuchShowException, IOException, InterruptedException, ExecutionException {
+            // Given a sold out show with a waitlisted buyer
+            adminCommandHandler.setup(1, 1, 2, 2);
+            Path journalFile = createJournalFile();
+            BookingJournal journal = new BookingJournal(journalFile);
+            AsyncBookingService service = new AsyncBookingService(buyerCommandHandler, journal, 10, 0);
+            Ticket ticket = service.bookAsync(1, "92344321", "A1,A2").get();
+            List<Integer> commitsWhenNotified = new ArrayList<>();
+            List<Boolean> showHeldWhenNotified = new ArrayList<>();
+            buyerCommandHandler.joinWaitlist(1, "92344322", 2, 0, t -> {
+                commitsWhenNotified.add(journal.getCommits());
+                showHeldWhenNotified.add(Thread.holdsLock(shows.get(1)));
+            });
+
+            // When the booking is cancelled through the service
+            Cancellation cancellation = service.cancelAsync(ticket.getTicketNumber(), "92344321").get();
+            service.close();
+
+            // Then the freed seats should be booked for the waitlisted buyer
+            Assertions.assertEquals(1, cancellation.getWaitlistBookings().size());
+            Ticket waitlistBooking = cancellation.getWaitlistBookings().get(0);
+            Assertions.assertEquals(List.of(waitlistBooking), new ArrayList<>(tickets.values()));
+
+            // And the waitlisted booking should be journalled right after the cancellation
+            Assertions.assertEquals(List.of(BookingJournal.bookRecord(ticket), BookingJournal.cancelRecord(ticket),
+                    BookingJournal.bookRecord(waitlistBooking)), Files.readAllLines(journalFile));
+
+            // And the waitlisted buyer should only be notified once the cancellation is committed and the show is
+            // released
+            Assertions.assertEquals(List.of(2), commitsWhenNotified);
+            Assertions.assertEquals(List.of(false), showHeldWhenNotified);
+        }
+    }
+
+    @Nested
+    class JournalReplayScenarios {
+        @Test
+        public void replay_success_restartFromJournal() throws InvalidSetupException, BookingException,
+                NoSuchShowException, IOException, InterruptedException, ExecutionException {
+            // Given bookings, a cancellation and a waitlist booking committed through the service
+            adminCommandHandler.setup(1, 1, 3, 2);
+            adminCommandHandler.setup(2, 2, 3, 2);
+            Path journalFile = createJournalFile();
+            AsyncBookingService service = new AsyncBookingService(buyerCommandHandler, new BookingJournal(journalFile),
+                    10, 0);
+            Ticket ticket = service.bookAsync(1, "92344321", "A1,A2").get();
+            service.bookAsync(1, "92344322", "A3").get();
+            service.bookAsync(2, "92344321", "B1,B2").get();
+            buyerCommandHandler.joinWaitlist(1, "92344323", 1, 0, t -> { });
+            service.cancelAsync(ticket.getTicketNumber(), "92344321").get();
+            service.close();
+
+            // And a last record that was cut off while being written
+            Files.writeString(journalFile, "Book 2 92344324 A1", StandardOpenOption.APPEND);
+
+            // When the process restarts with the same shows and replays the journal
+            HashMap<Integer, Show> restartedShows = new HashMap<>();
+            HashMap<UUID, Ticket> restartedTickets = new HashMap<>();
+            new AdminCommandHandler(restartedShows).setup(1, 1, 3, 2);
+            new AdminCommandHandler(restartedShows).setup(2, 2, 3, 2);
+            BuyerCommandHandler restartedBuyerCommandHandler = new BuyerCommandHandler(restartedShows,
+                    restartedTickets);
+            int applied = BookingJournal.replay(journalFile, restartedBuyerCommandHandler);
+
+            // Then every committed record should be applied, with the same ticket numbers
+            Assertions.assertEquals(5, applied);
+            Assertions.assertEquals(tickets.keySet(), restartedTickets.keySet());
+
+            // And the shows should be in the same state as before the restart
+            for (int showNumber = 1; showNumber <= 2; showNumber++) {
+                Show show = shows.get(showNumber);
+                Show restartedShow = restartedShows.get(showNumber);
+                Assertions.assertEquals(show.getAvailableSeats().keySet(), restartedShow.getAvailableSeats().keySet());
+                Assertions.assertEquals(show.getTicketsSold(), restartedShow.getTicketsSold());
+                Assertions.assertEquals(show.getCancellations(), restartedShow.getCancellations());
+            }
+            Assertions.assertEquals(buyerCommandHandler.retrieveAndPrintBookings("92344323").get(0).getTicketNumber(),
+                    restartedBuyerCommandHandler.retrieveAndPrintBookings("92344323").get(0).getTicketNumber());
+        }
+
+        @Test
+        public void replay_fail_recordCannotBeApplied() throws IOException {
+            // Given a journal with a booking for a show that is not set up
+            Path journalFile = createJournalFile();
+            Files.writeString(journalFile, "Book 1 92344321 A1 " + UUID.randomUUID() + " 0\n");
+
+            // When the journal is replayed
+            // Then the replay should fail
+            IOException exception = Assertions.assertThrows(IOException.class, () ->
+                    BookingJournal.replay(journalFile, buyerCommandHandler));
+            Assertions.assertTrue(exception.getCause() instanceof NoSuchShowException);
+        }
+    }
+
+    @Nested
+    class BookAsyncErrorScenarios {
+        @Test
+        public void bookAsync_fail_seatsAlreadyTaken() throws InvalidSetupException, IOException,
+                InterruptedException, ExecutionException {
+            // Given a created show and a service that waits up to 1 second for a batch of 2 to fill up
+            adminCommandHandler.setup(1, 2, 10, 2);
+            Path journalFile = createJournalFile();
+            AsyncBookingService service = new AsyncBookingService(buyerCommandHandler, new BookingJournal(journalFile),
+                    2, 1000);
+
+            // When 2 buyers book the same seat in the same batch
+            CompletableFuture<Ticket> future = service.bookAsync(1, "92344321", "A1");
+            CompletableFuture<Ticket> future2 = service.bookAsync(1, "92344322", "A1");
+            service.close();
+
+            // Then only the first booking should succeed
+            Assertions.assertEquals("92344321", future.get().getPhoneNumber());
+            ExecutionException exception = Assertions.assertThrows(ExecutionException.class, future2::get);
+            Assertions.assertTrue(exception.getCause() instanceof BookingException);
+            Assertions.assertEquals("Seat: A1 is not available.", exception.getCause().getMessage());
+
+            // And only the successful booking should be journalled
+            Assertions.assertEquals(1, Files.readAllLines(journalFile).size());
+        }
+
+        @Test
+        public void bookAsync_fail_journalFailureStopsService() throws InvalidSetupException, IOException {
+            // Given a created show and a service whose journal can no longer be written
+            adminCommandHandler.setup(1, 2, 10, 2);
+            BookingJournal journal = new BookingJournal(createJournalFile());
+            journal.close();
+            AsyncBookingService service = new AsyncBookingService(buyerCommandHandler, journal, 10, 0);
+
+            // When a booking is submitted
+            // Then the booking should fail with the journal failure
+            ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () ->
+                    service.bookAsync(1, "92344321", "A1").get());
+            Assertions.assertTrue(exception.getCause() instanceof IOException);
+
+            // And a retry should be rejected instead of being applied on top of the failed batch
+            ExecutionException retryException = Assertions.assertThrows(ExecutionException.class, () ->
+                    service.bookAsync(1, "92344321", "A1").get());
+            Assertions.assertEquals("Booking service stopped after a journal failure.",
+                    retryException.getCause().getMessage());
+            service.close();
+        }
+
+        @Test
+        public void bookAsync_fail_serviceClosed() throws IOException {
+            // Given a closed service
+            AsyncBookingService service = new AsyncBookingService(buyerCommandHandler,
+                    new BookingJournal(createJournalFile()), 10, 0);
+            service.close();
+
+            // When a booking is submitted
+            // Then the booking should fail
+            ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () ->
+                    service.bookAsync(1, "92344321", "A1").get());
+            Assertions.assertEquals("Booking service is closed.", exception.getCause().getMessage());
+        }
+    }
+}
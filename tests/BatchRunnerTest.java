@@ -0,0 +1,126 @@
+package tests;
+
+import objects.Show;
+import objects.Ticket;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import utility.AdminCommandHandler;
+import utility.BatchRunner;
+import utility.BuyerCommandHandler;
+import utility.CommandProcessor;
+import utility.PhoneNumberIndex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+public class BatchRunnerTest {
+    private final HashMap<Integer, Show> shows = new HashMap<>();
+    private final HashMap<UUID, Ticket> tickets = new HashMap<>();
+    private final PhoneNumberIndex bookingsByPhone = new PhoneNumberIndex();
+
+    private final CommandProcessor commandProcessor = new CommandProcessor(shows,
+            new AdminCommandHandler(shows, tickets, bookingsByPhone),
+            new BuyerCommandHandler(shows, tickets, bookingsByPhone));
+
+    /**
+     * Runs a script through a BatchRunner with 4 threads
+     *
+     * @param commands The lines of the script
+     * @return The printed results
+     */
+    private String runBatch(List<String> commands) throws IOException {
+        Path script = Files.createTempFile("batch", ".txt");
+        Files.write(script, commands, StandardCharsets.UTF_8);
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        new BatchRunner(commandProcessor, 4).run(script, new PrintStream(result, false, StandardCharsets.UTF_8));
+        Files.delete(script);
+        return withoutTicketNumbers(result.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Runs a script one command at a time on fresh shows
+     *
+     * @param commands The lines of the script
+     * @param shows The shows to run the script on
+     * @return The printed results
+     */
+    private static String runInOrder(List<String> commands, HashMap<Integer, Show> shows) {
+        HashMap<UUID, Ticket> tickets = new HashMap<>();
+        PhoneNumberIndex bookingsByPhone = new PhoneNumberIndex();
+        CommandProcessor commandProcessor = new CommandProcessor(shows,
+                new AdminCommandHandler(shows, tickets, bookingsByPhone),
+                new BuyerCommandHandler(shows, tickets, bookingsByPhone));
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(result, false, StandardCharsets.UTF_8);
+        for (String command : commands) {
+            commandProcessor.execute(command, out);
+        }
+        out.flush();
+        return withoutTicketNumbers(result.toString(StandardCharsets.UTF_8));
+    }
+
+    // Ticket numbers are random, so only their place in the output is compared
+    private static String withoutTicketNumbers(String output) {
+        return output.replaceAll("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}", "<ticket>");
+    }
+
+    @Nested
+    class RunScenarios {
+        @Test
+        public void run_success_interleavedShowsPrintInScriptOrder() throws IOException {
+            // Given a script that sets up 3 shows and then interleaves bookings, availability checks and views on
+            // them, where some bookings collide on a seat or a phone number
+            List<String> commands = new ArrayList<>();
+            for (int show = 1; show <= 3; show++) {
+                commands.add("Setup " + show + " 3 5 2");
+            }
+            for (int i = 0; i < 30; i++) {
+                int show = 1 + i % 3;
+                commands.add("Book " + show + " 9000000" + (i % 7) + " " + (char) ('A' + i % 3) + (1 + i % 5));
+                if (i % 4 == 0) {
+                    commands.add("Availability " + show);
+                }
+                if (i % 9 == 0) {
+                    commands.add("View " + (1 + (i + 1) % 3));
+                }
+            }
+            // And a Dashboard in the middle, which has to wait for every command before it
+            commands.add(20, "Dashboard");
+
+            // When the script is run in parallel
+            String output = runBatch(commands);
+
+            // Then the output should match running the script one command at a time
+            HashMap<Integer, Show> expectedShows = new HashMap<>();
+            Assertions.assertEquals(runInOrder(commands, expectedShows), output);
+
+            // And every show should end up with the same bookings
+            Assertions.assertEquals(expectedShows.size(), shows.size());
+            for (Show expected : expectedShows.values()) {
+                Show show = shows.get(expected.getNumber());
+                Assertions.assertEquals(expected.getTicketsSold(), show.getTicketsSold());
+                Assertions.assertEquals(expected.getSeatsSold(), show.getSeatsSold());
+                Assertions.assertEquals(expected.getAvailableSeats().keySet(), show.getAvailableSeats().keySet());
+            }
+            Assertions.assertEquals(expectedShows.values().stream().mapToInt(s -> s.getTickets().size()).sum(),
+                    tickets.size());
+        }
+
+        @Test
+        public void run_success_emptyScript() throws IOException {
+            // Given an empty script
+            // When the script is run
+            // Then nothing should be printed
+            Assertions.assertEquals("", runBatch(List.of()));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package tests;
+
+import exceptions.BookingException;
+import exceptions.InvalidSetupException;
+import exceptions.NoSuchShowException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import objects.Show;
+import objects.Ticket;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import utility.AdminCommandHandler;
+import utility.BookingOperationEvent;
+import utility.BuyerCommandHandler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public class BookingOperationEventTest {
+    private final HashMap<Integer, Show> shows = new HashMap<>();
+    private final HashMap<UUID, Ticket> tickets = new HashMap<>();
+
+    AdminCommandHandler adminCommandHandler = new AdminCommandHandler(shows);
+    BuyerCommandHandler buyerCommandHandler = new BuyerCommandHandler(shows, tickets);
+
+    private List<RecordedEvent> readEvents(Recording recording) throws IOException {
+        Path file = Files.createTempFile("booking", ".jfr");
+        recording.dump(file);
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals("showbooking.BookingOperation"))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .collect(Collectors.toList());
+        Files.delete(file);
+        return events;
+    }
+
+    @Nested
+    class RecordingScenarios {
+        @Test
+        public void record_success_bookingOperations() throws IOException, InvalidSetupException,
+                BookingException, NoSuchShowException {
+            try (Recording recording = new Recording()) {
+                // Given a recording with allocation profiling on
+                recording.enable("showbooking.BookingOperation").withoutThreshold();
+                BookingOperationEvent.setRecordAllocations(true);
+                recording.start();
+
+                // When a show is set up and booked twice, where the second booking fails
+                adminCommandHandler.setup(1, 3, 3, 2);
+                buyerCommandHandler.book(1, "92344321", "A1,A2");
+                Assertions.assertThrows(BookingException.class, () -> buyerCommandHandler.book(1, "92344322", "A1"));
+                recording.stop();
+                BookingOperationEvent.setRecordAllocations(false);
+
+                // Then an event is recorded for each operation
+                List<RecordedEvent> events = readEvents(recording);
+                Assertions.assertEquals(3, events.size());
+                Assertions.assertEquals("Setup", events.get(0).getString("operation"));
+                Assertions.assertEquals(9, events.get(0).getInt("seatCount"));
+
+                // And the successful booking records its seats and allocations
+                RecordedEvent booking = events.get(1);
+                Assertions.assertEquals("Book", booking.getString("operation"));
+                Assertions.assertEquals(1, booking.getInt("showNumber"));
+                Assertions.assertEquals(2, booking.getInt("seatCount"));
+                Assertions.assertEquals("Success", booking.getString("outcome"));
+                Assertions.assertTrue(booking.getLong("allocatedBytes") > 0);
+
+                // And the failed booking records the exception
+                Assertions.assertEquals("BookingException", events.get(2).getString("outcome"));
+                Assertions.assertEquals(1, events.get(2).getInt("ticketsScanned"));
+            }
+        }
+
+        @Test
+        public void record_success_availabilityOnlyForTheCommand() throws IOException, InvalidSetupException,
+                NoSuchShowException {
+            // Given a created show
+            adminCommandHandler.setup(1, 3, 3, 2);
+            try (Recording recording = new Recording()) {
+                recording.enable("showbooking.BookingOperation").withoutThreshold();
+                recording.start();
+
+                // When the availability is viewed, and the available seats are read directly
+                buyerCommandHandler.retrieveAndPrintAvailability(1);
+                shows.get(1).getAvailableSeats();
+                recording.stop();
+
+                // Then only the command records an event
+                List<RecordedEvent> events = readEvents(recording);
+                Assertions.assertEquals(1, events.size());
+                Assertions.assertEquals("Availability", events.get(0).getString("operation"));
+                Assertions.assertEquals(9, events.get(0).getInt("seatCount"));
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package tests;
 
 import exceptions.*;
+import objects.Cancellation;
 import objects.Seat;
 import objects.Show;
 import objects.Ticket;
@@ -9,7 +10,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Nested;
 import utility.AdminCommandHandler;
 import utility.BuyerCommandHandler;
+import utility.CommandProcessor;
+import utility.ContiguousSeatIndex;
+import utility.PhoneNumberIndex;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.util.*;
 
 public class BuyerCommandHandlerTest {
@@ -102,6 +108,52 @@ public class BuyerCommandHandlerTest {
             // And no bookings will be created
             Assertions.assertEquals(1, tickets.size());
         }
+
+        @Test
+        public void booking_fail_seatRepeatedInBooking() throws InvalidSetupException {
+            // Given a created show
+            int showNumber = 1;
+            setupShow(showNumber, 10, 10, 2);
+
+            // When the buyer books the same seat twice in one booking
+            // Then an exception will be thrown
+            Exception exception = Assertions.assertThrows(BookingException.class, () ->
+                    buyerCommandHandler.book(showNumber, "92344321", "A1,A2,A1"));
+            Assertions.assertEquals("Seat: A1 is not available.", exception.getMessage());
+
+            // And no bookings will be created
+            Assertions.assertEquals(0, tickets.size());
+            Assertions.assertEquals(100, shows.get(showNumber).getAvailableSeats().size());
+        }
+
+        @Test
+        public void booking_fail_seatOutsideLayout() throws InvalidSetupException {
+            // Given a created show with 3 rows of 3 seats
+            int showNumber = 1;
+            setupShow(showNumber, 3, 3, 2);
+
+            // When the buyer books a seat that is not in the layout
+            // Then an exception will be thrown
+            Exception exception = Assertions.assertThrows(BookingException.class, () ->
+                    buyerCommandHandler.book(showNumber, "92344321", "A4"));
+            Assertions.assertEquals("Seat: A4 is not available.", exception.getMessage());
+        }
+
+        @Test
+        public void booking_fail_zeroPaddedSeat() throws InvalidSetupException {
+            // Given a created show with 3 rows of 3 seats
+            int showNumber = 1;
+            setupShow(showNumber, 3, 3, 2);
+
+            // When the buyer books seat A1 written as A01
+            // Then an exception will be thrown
+            Exception exception = Assertions.assertThrows(BookingException.class, () ->
+                    buyerCommandHandler.book(showNumber, "92344321", "A01"));
+            Assertions.assertEquals("Seat: A01 is not available.", exception.getMessage());
+
+            // And no bookings will be created
+            Assertions.assertEquals(0, tickets.size());
+        }
     }
 
     @Nested
@@ -252,6 +304,25 @@ public class BuyerCommandHandlerTest {
             // And no tickets will be cancelled
             Assertions.assertEquals(1, tickets.size());
         }
+
+        @Test
+        public void cancel_fail_atCancellationDeadline() throws InvalidSetupException, BookingException,
+                NoSuchShowException {
+            // Given 2 existing bookings
+            setupShow(1, 3, 3, 2);
+            Ticket ticket = buyerCommandHandler.book(1, "92344321", "A1");
+            Ticket ticket2 = buyerCommandHandler.book(1, "92344322", "A2");
+
+            // When the buyer cancels the first booking a millisecond before its window closes
+            // Then the booking should be cancelled
+            Assertions.assertDoesNotThrow(() -> buyerCommandHandler.cancel(ticket.getTicketNumber(), "92344321",
+                    ticket.getCancellationDeadline() - 1));
+
+            // And when the other buyer cancels at the epoch millisecond its window closes
+            // Then an exception will be thrown
+            Assertions.assertThrows(CancelBookingException.class, () -> buyerCommandHandler.cancel(
+                    ticket2.getTicketNumber(), "92344322", ticket2.getCancellationDeadline()));
+        }
     }
 
     @Nested
@@ -283,4 +354,284 @@ public class BuyerCommandHandlerTest {
             Assertions.assertArrayEquals(expectedAvailableSeats, new String[]{"A1", "A2", "A3", "B1", "B2", "B3", "C1", "C2", "C3"});
         }
     }
+
+    @Nested
+    class RetrieveAndPrintBookingsSuccessScenarios {
+        @Test
+        public void retrieveAndPrintBookings_success_acrossShows() throws InvalidSetupException, BookingException,
+                NoSuchShowException, NoSuchTicketException, CancelBookingException {
+            // Given 2 created shows and bookings under the same phone number for both
+            setupShow(1, 3, 3, 2);
+            setupShow(2, 3, 3, 2);
+            String phoneNumber = "92344321";
+            Ticket ticket = buyerCommandHandler.book(1, phoneNumber, "A1,A2");
+            Ticket ticket2 = buyerCommandHandler.book(2, phoneNumber, "B1");
+            buyerCommandHandler.book(2, "92344322", "C1");
+
+            // When the bookings for the phone number are retrieved
+            List<Ticket> bookings = buyerCommandHandler.retrieveAndPrintBookings(phoneNumber);
+
+            // Then both bookings should be returned
+            Assertions.assertEquals(2, bookings.size());
+            Assertions.assertTrue(bookings.contains(ticket));
+            Assertions.assertTrue(bookings.contains(ticket2));
+
+            // And when one of the bookings is cancelled
+            buyerCommandHandler.cancel(ticket.getTicketNumber(), phoneNumber, new Date());
+
+            // Then only the remaining booking should be returned
+            bookings = buyerCommandHandler.retrieveAndPrintBookings(phoneNumber);
+            Assertions.assertEquals(1, bookings.size());
+            Assertions.assertEquals(ticket2, bookings.get(0));
+
+            // And when the remaining booking is cancelled as well
+            buyerCommandHandler.cancel(ticket2.getTicketNumber(), phoneNumber, new Date());
+
+            // Then no bookings should be returned, while the other buyer keeps theirs
+            Assertions.assertTrue(buyerCommandHandler.retrieveAndPrintBookings(phoneNumber).isEmpty());
+            Assertions.assertEquals(1, buyerCommandHandler.retrieveAndPrintBookings("92344322").size());
+        }
+
+        @Test
+        public void retrieveAndPrintBookings_success_leadingZerosAreDistinct() throws InvalidSetupException,
+                BookingException, NoSuchShowException {
+            // Given bookings under phone numbers that only differ by a leading zero
+            setupShow(1, 3, 3, 2);
+            buyerCommandHandler.book(1, "92344321", "A1");
+            Ticket ticket = buyerCommandHandler.book(1, "092344321", "A2");
+
+            // When the bookings for the phone number with the leading zero are retrieved
+            List<Ticket> bookings = buyerCommandHandler.retrieveAndPrintBookings("092344321");
+
+            // Then only its own booking should be returned
+            Assertions.assertEquals(1, bookings.size());
+            Assertions.assertEquals(ticket, bookings.get(0));
+        }
+    }
+
+    @Nested
+    class RetrieveAndPrintBookingsErrorScenarios {
+        @Test
+        public void retrieveAndPrintBookings_fail_invalidPhoneNumber() {
+            // When the bookings are retrieved for an invalid phone number
+            // Then an exception will be thrown
+            Exception exception = Assertions.assertThrows(BookingException.class, () ->
+                    buyerCommandHandler.retrieveAndPrintBookings("1234567890123456"));
+            Assertions.assertEquals("Invalid phoneNumber.", exception.getMessage());
+        }
+    }
+
+    @Nested
+    class FinalizeExpiredTicketsScenarios {
+        private final MutableClock clock = new MutableClock();
+        private final BuyerCommandHandler clockedBuyerCommandHandler = new BuyerCommandHandler(shows, tickets,
+                new PhoneNumberIndex(), clock);
+
+        @Test
+        public void finalizeExpiredTickets_success() throws InvalidSetupException, BookingException,
+                NoSuchShowException, NoSuchTicketException, CancelBookingException {
+            // Given a created show with 2 minutes cancellation window and 2 bookings
+            int cancellationWindow = 2;
+            setupShow(1, 3, 3, cancellationWindow);
+            String phoneNumber = "92344321";
+            Ticket ticket = clockedBuyerCommandHandler.book(1, phoneNumber, "A1");
+            Ticket ticket2 = clockedBuyerCommandHandler.book(1, "92344322", "A2");
+
+            // When one booking is cancelled and the window of the other one closes
+            clockedBuyerCommandHandler.cancel(ticket2.getTicketNumber(), "92344322");
+            clock.millis += (cancellationWindow + 1) * 60 * 1000L;
+
+            // Then only the remaining booking should be finalized
+            Assertions.assertEquals(1, clockedBuyerCommandHandler.finalizeExpiredTickets());
+            Assertions.assertTrue(ticket.isFinalized());
+            Assertions.assertFalse(ticket2.isFinalized());
+
+            // And it can no longer be cancelled
+            Exception exception = Assertions.assertThrows(CancelBookingException.class, () ->
+                    clockedBuyerCommandHandler.cancel(ticket.getTicketNumber(), phoneNumber));
+            Assertions.assertEquals(exception.getMessage(), "You cannot cancel your booking as it passed the window of: " +
+                    cancellationWindow + " minutes");
+            Assertions.assertEquals(1, tickets.size());
+        }
+
+        @Test
+        public void finalizeExpiredTickets_success_windowStillOpen() throws InvalidSetupException, BookingException,
+                NoSuchShowException, NoSuchTicketException, CancelBookingException {
+            // Given a created show with 2 minutes cancellation window and a booking
+            setupShow(1, 3, 3, 2);
+            String phoneNumber = "92344321";
+            Ticket ticket = clockedBuyerCommandHandler.book(1, phoneNumber, "A1");
+
+            // When 2 minutes and 59 seconds have passed
+            clock.millis += 179 * 1000L;
+
+            // Then the booking should not be finalized
+            Assertions.assertEquals(0, clockedBuyerCommandHandler.finalizeExpiredTickets());
+            Assertions.assertFalse(ticket.isFinalized());
+
+            // And it can still be cancelled
+            clockedBuyerCommandHandler.cancel(ticket.getTicketNumber(), phoneNumber);
+            Assertions.assertEquals(0, tickets.size());
+        }
+
+        @Test
+        public void finalizeExpiredTickets_success_cancellationTimeUsed() throws InvalidSetupException,
+                BookingException, NoSuchShowException, NoSuchTicketException, CancelBookingException {
+            // Given a created show with 2 minutes cancellation window and a booking
+            setupShow(1, 3, 3, 2);
+            String phoneNumber = "92344321";
+            Ticket ticket = clockedBuyerCommandHandler.book(1, phoneNumber, "A1");
+
+            // When the clock has passed the window, but the booking is cancelled at a time within it
+            clock.millis += 10 * 60 * 1000L;
+            clockedBuyerCommandHandler.cancel(ticket.getTicketNumber(), phoneNumber,
+                    ticket.getCancellationDeadline() - 1);
+
+            // Then the booking should not have been finalized by the clock, and should be cancelled
+            Assertions.assertFalse(ticket.isFinalized());
+            Assertions.assertEquals(0, tickets.size());
+        }
+    }
+
+    @Nested
+    class RetrieveAndPrintShowsWithSeatsTogetherScenarios {
+        private final HashMap<UUID, Ticket> sharedTickets = new HashMap<>();
+        private final PhoneNumberIndex bookingsByPhone = new PhoneNumberIndex();
+        private final ContiguousSeatIndex showsBySeatsTogether = new ContiguousSeatIndex();
+        private final AdminCommandHandler indexedAdminCommandHandler = new AdminCommandHandler(shows, sharedTickets,
+                bookingsByPhone, showsBySeatsTogether);
+        private final BuyerCommandHandler indexedBuyerCommandHandler = new BuyerCommandHandler(shows, sharedTickets,
+                bookingsByPhone, new MutableClock(), showsBySeatsTogether);
+
+        @Test
+        public void retrieveAndPrintShowsWithSeatsTogether_success() throws InvalidSetupException, BookingException,
+                NoSuchShowException, NoSuchTicketException {
+            // Given 2 shows with 2 rows of 5 seats
+            indexedAdminCommandHandler.setup(1, 2, 5, 2);
+            indexedAdminCommandHandler.setup(2, 2, 5, 2);
+
+            // When the middle seat of every row of show 1 is booked
+            Ticket ticket = indexedBuyerCommandHandler.book(1, "92344321", "A3,B3");
+
+            // Then only show 2 still has 3 seats together
+            Assertions.assertEquals(2, shows.get(1).getLongestFreeRun());
+            Assertions.assertEquals(List.of(2), indexedBuyerCommandHandler.retrieveAndPrintShowsWithSeatsTogether(3));
+            Assertions.assertEquals(Set.of(1, 2),
+                    new HashSet<>(indexedBuyerCommandHandler.retrieveAndPrintShowsWithSeatsTogether(2)));
+
+            // And show 1 has 5 seats together again once the booking is cancelled
+            indexedBuyerCommandHandler.forceCancel(ticket.getTicketNumber());
+            Assertions.assertEquals(Set.of(1, 2),
+                    new HashSet<>(indexedBuyerCommandHandler.retrieveAndPrintShowsWithSeatsTogether(5)));
+            Assertions.assertTrue(indexedBuyerCommandHandler.retrieveAndPrintShowsWithSeatsTogether(6).isEmpty());
+        }
+
+        @Test
+        public void retrieveAndPrintShowsWithSeatsTogether_fail_numOfSeatsBelow1() throws InvalidSetupException,
+                NoSuchShowException {
+            // Given a closed show and an open show
+            indexedAdminCommandHandler.setup(1, 2, 5, 2);
+            indexedAdminCommandHandler.setup(2, 2, 5, 2);
+            indexedAdminCommandHandler.closeShow(1);
+            CommandProcessor commandProcessor = new CommandProcessor(shows, indexedAdminCommandHandler,
+                    indexedBuyerCommandHandler);
+
+            // When shows with fewer than 1 seat together are looked up
+            // Then the command should be rejected instead of listing the closed show
+            Assertions.assertEquals("Invalid params for FindSeats command", execute(commandProcessor, "FindSeats 0"));
+            Assertions.assertEquals("Invalid params for FindSeats command", execute(commandProcessor, "FindSeats -1"));
+
+            // And the closed show should not be found for 1 seat
+            Assertions.assertEquals(List.of(2), indexedBuyerCommandHandler.retrieveAndPrintShowsWithSeatsTogether(1));
+        }
+
+        @Test
+        public void retrieveAndPrintShowsWithSeatsTogether_fail_negativeLayoutNotIndexed() {
+            // Given a show setup with a negative number of seats per row
+            CommandProcessor commandProcessor = new CommandProcessor(shows, indexedAdminCommandHandler,
+                    indexedBuyerCommandHandler);
+            execute(commandProcessor, "Setup 1 1 -1 2");
+
+            // When shows with 31 seats together are looked up
+            // Then no show should be found, as the setup was rejected
+            Assertions.assertTrue(execute(commandProcessor, "FindSeats 31").contains("No shows found."));
+            Assertions.assertTrue(shows.isEmpty());
+        }
+
+        private String execute(CommandProcessor commandProcessor, String command) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            commandProcessor.execute(command, new PrintStream(out, true));
+            return out.toString().trim();
+        }
+    }
+
+    @Nested
+    class WaitlistScenarios {
+        @Test
+        public void waitlist_success_freedSeatsAssignedByPriority() throws InvalidSetupException, BookingException,
+                NoSuchShowException, NoSuchTicketException {
+            // Given a sold out show with 1 row of 3 seats
+            setupShow(1, 1, 3, 2);
+            Ticket ticket = buyerCommandHandler.book(1, "92344321", "A1,A2");
+            buyerCommandHandler.book(1, "92344322", "A3");
+
+            // And 3 waitlisted buyers, where only the last 2 fit into the cancelled booking
+            List<Ticket> notified = new ArrayList<>();
+            buyerCommandHandler.joinWaitlist(1, "92344323", 3, 10, notified::add);
+            buyerCommandHandler.joinWaitlist(1, "92344324", 1, 0, notified::add);
+            buyerCommandHandler.joinWaitlist(1, "92344325", 1, 5, notified::add);
+
+            // When the booking of 2 seats is cancelled
+            Cancellation cancellation = buyerCommandHandler.forceCancel(ticket.getTicketNumber());
+
+            // Then the freed seats are booked for the fitting buyers, highest priority first
+            Assertions.assertEquals(ticket, cancellation.getTicket());
+            Assertions.assertEquals(notified, cancellation.getWaitlistBookings());
+            Assertions.assertEquals(2, notified.size());
+            Assertions.assertEquals("92344325", notified.get(0).getPhoneNumber());
+            Assertions.assertEquals("A1", notified.get(0).getSeats().get(0).getSeatNumber());
+            Assertions.assertEquals("92344324", notified.get(1).getPhoneNumber());
+            Assertions.assertEquals("A2", notified.get(1).getSeats().get(0).getSeatNumber());
+
+            // And no seats are left, while the buyer that did not fit is still waiting
+            Assertions.assertTrue(buyerCommandHandler.retrieveAndPrintAvailability(1).isEmpty());
+            Assertions.assertEquals(3, tickets.size());
+            Assertions.assertEquals(1, buyerCommandHandler.getWaitlistSize(1));
+        }
+
+        @Test
+        public void waitlist_success_notifiedAfterShowReleased() throws InvalidSetupException, BookingException,
+                NoSuchShowException, NoSuchTicketException {
+            // Given a sold out show with 1 row of 2 seats and 2 waitlisted buyers, where notifying the first fails
+            setupShow(1, 1, 2, 2);
+            Ticket ticket = buyerCommandHandler.book(1, "92344321", "A1,A2");
+            List<Boolean> showHeldWhenNotified = new ArrayList<>();
+            buyerCommandHandler.joinWaitlist(1, "92344322", 1, 10, t -> {
+                throw new IllegalStateException("Buyer cannot be reached");
+            });
+            buyerCommandHandler.joinWaitlist(1, "92344323", 1, 0,
+                    t -> showHeldWhenNotified.add(Thread.holdsLock(shows.get(1))));
+
+            // When the booking is cancelled
+            Cancellation cancellation = buyerCommandHandler.forceCancel(ticket.getTicketNumber());
+
+            // Then both buyers should be booked, and the second one notified after the show is released
+            Assertions.assertEquals(2, cancellation.getWaitlistBookings().size());
+            Assertions.assertEquals(List.of(false), showHeldWhenNotified);
+            Assertions.assertTrue(buyerCommandHandler.retrieveAndPrintAvailability(1).isEmpty());
+        }
+
+        @Test
+        public void waitlist_fail_invalidNumOfSeats() throws InvalidSetupException {
+            // Given a created show with 3 seats
+            setupShow(1, 1, 3, 2);
+
+            // When the buyer waits for more seats than the show has
+            // Then an exception will be thrown
+            Exception exception = Assertions.assertThrows(BookingException.class, () ->
+                    buyerCommandHandler.joinWaitlist(1, "92344321", 4, 0, t -> { }));
+            Assertions.assertEquals("Invalid number of seats: 4", exception.getMessage());
+            Assertions.assertEquals(0, buyerCommandHandler.getWaitlistSize(1));
+        }
+    }
 }
@@ -0,0 +1,169 @@
+package tests;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Checks a history of concurrent Book, Cancel and Availability operations on one show against a sequential seat map.
+ * A history is linearizable if every operation can be ordered at a single point between its call and return, so that
+ * replaying them one by one on the seat map gives the same results.
+ *
+ * The search tries each operation that could come next and backtracks, remembering the sets of operations that
+ * failed. Given the recorded results, the seat map after a set of operations does not depend on their order, so the
+ * set alone identifies a dead end.
+ */
+class LinearizabilityChecker {
+    static final String BOOK = "Book";
+    static final String CANCEL = "Cancel";
+    static final String AVAILABILITY = "Availability";
+
+    private final int numOfSeats;
+    private final List<Operation> history;
+    private final HashSet<Long> deadEnds = new HashSet<>();
+
+    /**
+     * Creates a checker for a history of at most 64 operations
+     *
+     * @param numOfSeats The number of seats in the show, where seat i is bit i of a seat bitmask
+     * @param history The completed operations, in any order
+     */
+    LinearizabilityChecker(int numOfSeats, List<Operation> history) {
+        if (history.size() > 64) {
+            throw new IllegalArgumentException("At most 64 operations can be checked, got " + history.size());
+        }
+        this.numOfSeats = numOfSeats;
+        this.history = history;
+    }
+
+    /**
+     * Checks whether the history is linearizable
+     *
+     * @return The boolean value whether a valid sequential order exists
+     */
+    boolean isLinearizable() {
+        return this.search(0L, new SeatMap(numOfSeats));
+    }
+
+    private boolean search(long done, SeatMap seatMap) {
+        if (Long.bitCount(done) == history.size()) {
+            return true;
+        }
+        if (deadEnds.contains(done)) {
+            return false;
+        }
+        // Only operations called before the earliest pending return can take effect next
+        long earliestReturn = Long.MAX_VALUE;
+        for (int i = 0; i < history.size(); i++) {
+            if ((done & (1L << i)) == 0) {
+                earliestReturn = Math.min(earliestReturn, history.get(i).ret);
+            }
+        }
+        for (int i = 0; i < history.size(); i++) {
+            Operation operation = history.get(i);
+            if ((done & (1L << i)) != 0 || operation.call > earliestReturn) {
+                continue;
+            }
+            SeatMap next = seatMap.apply(operation);
+            if (next != null && this.search(done | (1L << i), next)) {
+                return true;
+            }
+        }
+        deadEnds.add(done);
+        return false;
+    }
+
+    /**
+     * A completed operation with the logical times of its call and return
+     */
+    static class Operation {
+        final int thread;
+        final String kind;
+        final String phoneNumber;
+        // Bitmask of the seats to book, or of the free seats returned by Availability
+        final int seats;
+        final UUID ticketNumber;
+        final boolean succeeded;
+        final long call;
+        final long ret;
+
+        Operation(int thread, String kind, String phoneNumber, int seats, UUID ticketNumber, boolean succeeded,
+                  long call, long ret) {
+            this.thread = thread;
+            this.kind = kind;
+            this.phoneNumber = phoneNumber;
+            this.seats = seats;
+            this.ticketNumber = ticketNumber;
+            this.succeeded = succeeded;
+            this.call = call;
+            this.ret = ret;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + call + ", " + ret + "] thread " + thread + ": " + kind + " " +
+                    (kind.equals(AVAILABILITY) ? "" : phoneNumber + " ") + Integer.toBinaryString(seats) + " " +
+                    (ticketNumber == null ? "" : ticketNumber + " ") + (succeeded ? "ok" : "failed");
+        }
+    }
+
+    /**
+     * Sequential model of a show, where each live ticket holds its phone number and seats
+     */
+    private static class SeatMap {
+        private final int allSeats;
+        private final int occupied;
+        private final HashMap<UUID, Operation> liveBookings;
+
+        private SeatMap(int numOfSeats) {
+            this((1 << numOfSeats) - 1, 0, new HashMap<>());
+        }
+
+        private SeatMap(int allSeats, int occupied, HashMap<UUID, Operation> liveBookings) {
+            this.allSeats = allSeats;
+            this.occupied = occupied;
+            this.liveBookings = liveBookings;
+        }
+
+        /**
+         * Applies an operation if its recorded result matches the seat map
+         *
+         * @param operation The operation to apply
+         * @return The seat map after the operation, or null if the recorded result is not possible here
+         */
+        private SeatMap apply(Operation operation) {
+            switch (operation.kind) {
+                case BOOK: {
+                    boolean canBook = (occupied & operation.seats) == 0 && liveBookings.values().stream()
+                            .noneMatch(b -> b.phoneNumber.equals(operation.phoneNumber));
+                    if (canBook != operation.succeeded) {
+                        return null;
+                    }
+                    if (!canBook) {
+                        return this;
+                    }
+                    HashMap<UUID, Operation> next = new HashMap<>(liveBookings);
+                    next.put(operation.ticketNumber, operation);
+                    return new SeatMap(allSeats, occupied | operation.seats, next);
+                }
+                case CANCEL: {
+                    Operation booking = liveBookings.get(operation.ticketNumber);
+                    if ((booking != null) != operation.succeeded) {
+                        return null;
+                    }
+                    if (booking == null) {
+                        return this;
+                    }
+                    HashMap<UUID, Operation> next = new HashMap<>(liveBookings);
+                    next.remove(operation.ticketNumber);
+                    return new SeatMap(allSeats, occupied & ~booking.seats, next);
+                }
+                case AVAILABILITY:
+                    return (allSeats & ~occupied) == operation.seats ? this : null;
+                default:
+                    throw new IllegalArgumentException("Unknown operation: " + operation.kind);
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package tests;
+
+import objects.Show;
+import objects.Ticket;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import utility.AdminCommandHandler;
+import utility.BuyerCommandHandler;
+import utility.CommandProcessor;
+import utility.InMemoryShowRepository;
+import utility.PhoneNumberIndex;
+import utility.ReplicationFollower;
+import utility.ReplicationLeader;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class ReplicationTest {
+    private final HashMap<Integer, Show> shows = new HashMap<>();
+    private final HashMap<UUID, Ticket> tickets = new HashMap<>();
+    private final PhoneNumberIndex bookingsByPhone = new PhoneNumberIndex();
+
+    AdminCommandHandler adminCommandHandler = new AdminCommandHandler(shows, tickets, bookingsByPhone);
+    BuyerCommandHandler buyerCommandHandler = new BuyerCommandHandler(shows, tickets, bookingsByPhone);
+
+    private String execute(CommandProcessor commandProcessor, String command) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        commandProcessor.execute(command, new PrintStream(out, true));
+        return out.toString();
+    }
+
+    private String execute(ReplicationFollower follower, String command) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        follower.execute(command, new PrintStream(out, true));
+        return out.toString();
+    }
+
+    private void awaitSequence(ReplicationFollower follower, long sequence) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (follower.getAppliedSequence() != sequence) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Follower did not catch up in time");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Applies a history to the leader where a snapshot is needed to catch up, as the leader only keeps 2 records
+     *
+     * @param commandProcessor The command processor of the leader
+     */
+    private void applyHistory(CommandProcessor commandProcessor) {
+        execute(commandProcessor, "Setup 1 3 3 2");
+        execute(commandProcessor, "Setup 2 3 3 2");
+        execute(commandProcessor, "Book 1 92344321 A1,A2");
+        Ticket ticket = tickets.values().iterator().next();
+        execute(commandProcessor, "Book 1 92344322 B1");
+        execute(commandProcessor, "Cancel " + ticket.getTicketNumber() + " 92344321");
+        execute(commandProcessor, "Book 2 92344321 C3");
+    }
+
+    @Nested
+    class ReplicationSuccessScenarios {
+        @Test
+        public void replication_success_catchUpFromSnapshotAndLog() throws IOException, InterruptedException {
+            // Given a leader that only keeps the latest 2 records and has applied more than that
+            try (ReplicationLeader leader = new ReplicationLeader(0, 2, new InMemoryShowRepository(shows))) {
+                leader.start();
+                CommandProcessor commandProcessor = new CommandProcessor(shows, adminCommandHandler,
+                        buyerCommandHandler, leader);
+                applyHistory(commandProcessor);
+                Assertions.assertEquals(6, leader.getSequence());
+
+                // When a follower joins
+                try (ReplicationFollower follower = new ReplicationFollower("localhost", leader.getPort())) {
+                    follower.start();
+                    awaitSequence(follower, 6);
+
+                    // Then it should have the same shows, bookings and counters as the leader
+                    Assertions.assertEquals(8, follower.getShow(1).getAvailableSeats().size());
+                    Assertions.assertFalse(follower.getShow(1).getAvailableSeats().containsKey("B1"));
+                    Assertions.assertEquals(8, follower.getShow(2).getAvailableSeats().size());
+                    Assertions.assertEquals(2, follower.getShow(1).getTicketsSold());
+                    Assertions.assertEquals(1, follower.getShow(1).getCancellations());
+                    Assertions.assertEquals(execute(commandProcessor, "Dashboard"), execute(follower, "Dashboard"));
+
+                    // And when the leader applies more bookings
+                    execute(commandProcessor, "Book 1 92344323 C1,C2");
+                    execute(commandProcessor, "CancelShow 2");
+                    execute(commandProcessor, "CloseShow 1");
+                    awaitSequence(follower, 9);
+
+                    // Then the follower should apply them from the log
+                    Assertions.assertEquals(6, follower.getShow(1).getAvailableSeats().size());
+                    Assertions.assertEquals(9, follower.getShow(2).getAvailableSeats().size());
+                    Assertions.assertTrue(follower.getShow(2).isClosed());
+                    Assertions.assertTrue(follower.getShow(1).isClosed());
+                    Assertions.assertTrue(follower.getShow(1).getTickets().get(0).isFinalized());
+                    Assertions.assertTrue(execute(follower, "ReplicationStatus").contains("Applied sequence: 9/9"));
+                }
+            }
+        }
+
+        @Test
+        public void replication_success_waitlistBookings() throws IOException, InterruptedException {
+            // Given a follower of a leader with a sold out show and a waitlisted buyer
+            try (ReplicationLeader leader = new ReplicationLeader(0, 10, new InMemoryShowRepository(shows))) {
+                leader.start();
+                CommandProcessor commandProcessor = new CommandProcessor(shows, adminCommandHandler,
+                        buyerCommandHandler, leader);
+                execute(commandProcessor, "Setup 1 1 2 2");
+                execute(commandProcessor, "Book 1 92344321 A1,A2");
+                Ticket ticket = tickets.values().iterator().next();
+                execute(commandProcessor, "Waitlist 1 92344322 2");
+                try (ReplicationFollower follower = new ReplicationFollower("localhost", leader.getPort())) {
+                    follower.start();
+                    awaitSequence(follower, 2);
+
+                    // When the booking is cancelled on the leader
+                    String output = execute(commandProcessor, "Cancel " + ticket.getTicketNumber() + " 92344321");
+
+                    // Then the booking made for the waitlisted buyer should be reported and replicated
+                    Assertions.assertTrue(output.contains("Waitlisted booking for 92344322 confirmed"));
+                    awaitSequence(follower, 4);
+                    Assertions.assertTrue(follower.getShow(1).getAvailableSeats().isEmpty());
+                    Assertions.assertEquals(execute(commandProcessor, "MyBookings 92344322"),
+                            execute(follower, "MyBookings 92344322"));
+                }
+            }
+        }
+
+        @Test
+        public void replication_success_followerInAnotherProcess() throws IOException, InterruptedException {
+            // Given a leader that only keeps the latest 2 records and has applied more than that
+            try (ReplicationLeader leader = new ReplicationLeader(0, 2, new InMemoryShowRepository(shows))) {
+                leader.start();
+                CommandProcessor commandProcessor = new CommandProcessor(shows, adminCommandHandler,
+                        buyerCommandHandler, leader);
+                applyHistory(commandProcessor);
+
+                // When a follower is started in its own JVM
+                Process process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java")
+                        .toString(), "-cp", System.getProperty("java.class.path"), "main", "--follower",
+                        "localhost:" + leader.getPort()).redirectErrorStream(true).start();
+                try {
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                            StandardCharsets.UTF_8));
+                    Writer writer = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+                    Assertions.assertTrue(reader.readLine().startsWith("Following localhost:"));
+
+                    // Then it should catch up with the leader
+                    long deadline = System.currentTimeMillis() + 10000;
+                    while (!readStatus(reader, writer).contains("Applied sequence: 6/6")) {
+                        Assertions.assertTrue(System.currentTimeMillis() < deadline,
+                                "Follower did not catch up in time");
+                        Thread.sleep(50);
+                    }
+
+                    // And serve the same dashboard as the leader
+                    writer.write("Dashboard\n");
+                    String dashboard = readStatus(reader, writer);
+                    String leaderDashboard = execute(commandProcessor, "Dashboard");
+                    Assertions.assertEquals(leaderDashboard.replace(System.lineSeparator(), "\n"),
+                            dashboard.substring(0, dashboard.indexOf("Connected to leader")));
+                } finally {
+                    // The follower exits once its input is closed
+                    process.getOutputStream().close();
+                    if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                        process.destroyForcibly();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Runs ReplicationStatus on a follower process
+         *
+         * @param reader The output of the process
+         * @param writer The input of the process
+         * @return Everything printed since the previous status, up to and including this status
+         */
+        private String readStatus(BufferedReader reader, Writer writer) throws IOException {
+            writer.write("ReplicationStatus\n");
+            writer.flush();
+            StringBuilder output = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append("\n");
+                if (line.startsWith("Replication lag: ")) {
+                    return output.toString();
+                }
+            }
+            return Assertions.fail("Follower exited: " + output);
+        }
+    }
+
+    @Nested
+    class ReplicationErrorScenarios {
+        @Test
+        public void replication_fail_followerIsReadOnly() throws IOException {
+            // Given a follower
+            try (ReplicationLeader leader = new ReplicationLeader(0, 2, new InMemoryShowRepository(shows));
+                 ReplicationFollower follower = new ReplicationFollower("localhost", leader.getPort())) {
+                // When a booking is made on the follower
+                // Then it should be rejected
+                Assertions.assertEquals("This is a read-only follower, send the command to the leader",
+                        execute(follower, "Book 1 92344321 A1").trim());
+            }
+        }
+    }
+}
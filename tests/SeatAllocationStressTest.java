@@ -0,0 +1,508 @@
+package tests;
+
+import exceptions.BookingException;
+import objects.Seat;
+import objects.Show;
+import objects.Ticket;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import utility.AdminCommandHandler;
+import utility.BuyerCommandHandler;
+import utility.ContiguousSeatIndex;
+import utility.InMemoryShowRepository;
+import utility.PhoneNumberIndex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs overlapping Book, Cancel and Availability operations on a show with 3 seats, so that most of them collide,
+ * and checks every recorded history with LinearizabilityChecker.
+ *
+ * The seed of a run plans the operations of every thread up front, so that no thread depends on the results of
+ * another. In the stress runs real threads race each other, while the scheduled runs let one thread at a time go on
+ * to its next scheduling point, in an order picked by the seed, so a failing seed can be replayed exactly. The
+ * scheduling points are inside the show, where the booking handler checks and changes its seats, but only where the
+ * thread does not hold the show. A stopped thread then never holds a monitor that another thread could block on, so
+ * the JVM never has to pick which blocked thread goes on.
+ */
+public class SeatAllocationStressTest {
+    private static final int NUM_OF_SEATS = 3;
+    private static final int NUM_OF_THREADS = 4;
+    private static final int OPS_PER_THREAD = 8;
+    private static final int NUM_OF_SEEDS = 200;
+
+    /**
+     * Plans the operations of every thread
+     *
+     * @param seed The seed of the operations
+     * @param run The show to run the operations on
+     * @return The operations of each thread, in order
+     */
+    private static List<List<PendingOperation>> plan(long seed, Run run) {
+        Random random = new Random(seed);
+        List<List<PendingOperation>> plans = new ArrayList<>();
+        List<PendingOperation> bookings = new ArrayList<>();
+        List<PendingOperation> cancellations = new ArrayList<>();
+        for (int thread = 0; thread < NUM_OF_THREADS; thread++) {
+            List<PendingOperation> plan = new ArrayList<>();
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+                switch (random.nextInt(3)) {
+                    case 0: {
+                        // A small pool of phone numbers, so that buyers also collide on their existing bookings
+                        String phoneNumber = "9000000" + random.nextInt(4);
+                        int seats = 1 + random.nextInt((1 << NUM_OF_SEATS) - 1);
+                        PendingOperation booking = new PendingOperation(run, thread, LinearizabilityChecker.BOOK,
+                                phoneNumber, seats, new UUID(random.nextLong(), random.nextLong()));
+                        bookings.add(booking);
+                        plan.add(booking);
+                        break;
+                    }
+                    case 1: {
+                        // The ticket to cancel is picked once every booking is planned
+                        PendingOperation cancellation = new PendingOperation(run, thread,
+                                LinearizabilityChecker.CANCEL, null, 0, null);
+                        cancellations.add(cancellation);
+                        plan.add(cancellation);
+                        break;
+                    }
+                    default:
+                        plan.add(new PendingOperation(run, thread, LinearizabilityChecker.AVAILABILITY, null, 0,
+                                null));
+                        break;
+                }
+            }
+            plans.add(plan);
+        }
+        for (PendingOperation cancellation : cancellations) {
+            // Cancel any planned booking, which may fail, be cancelled by another thread or not be booked yet
+            int index = random.nextInt(bookings.size() + 1);
+            if (index == bookings.size()) {
+                cancellation.phoneNumber = "90000000";
+                cancellation.ticketNumber = new UUID(random.nextLong(), random.nextLong());
+            } else {
+                cancellation.phoneNumber = bookings.get(index).phoneNumber;
+                cancellation.ticketNumber = bookings.get(index).ticketNumber;
+            }
+        }
+        return plans;
+    }
+
+    /**
+     * Runs the operations of every thread at the same time
+     *
+     * @param seed The seed of the operations
+     * @return The history of the run
+     */
+    private List<LinearizabilityChecker.Operation> runConcurrently(long seed) throws InterruptedException {
+        // Yield inside the show as well, to make threads switch where the handler checks and changes the seats
+        Run run = new Run(Thread::yield);
+        List<List<PendingOperation>> plans = plan(seed, run);
+        AtomicLong ticks = new AtomicLong();
+        ConcurrentLinkedQueue<LinearizabilityChecker.Operation> history = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (List<PendingOperation> plan : plans) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (PendingOperation operation : plan) {
+                    operation.call(ticks::incrementAndGet);
+                    operation.execute();
+                    history.add(operation.complete(ticks::incrementAndGet));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new ArrayList<>(history);
+    }
+
+    /**
+     * Runs the operations of every thread on its own thread, where the seed picks which thread goes on to its next
+     * scheduling point. Besides the points inside the show, each thread stops before calling an operation and before
+     * it returns, and takes the tick of the call or return once it is let go.
+     *
+     * @param seed The seed of the operations and of the interleaving
+     * @return The history of the run
+     */
+    private List<LinearizabilityChecker.Operation> runScheduled(long seed) throws InterruptedException {
+        Scheduler scheduler = new Scheduler(seed);
+        Run run = new Run(scheduler::yieldPoint);
+        List<List<PendingOperation>> plans = plan(seed, run);
+        AtomicLong ticks = new AtomicLong();
+        ConcurrentLinkedQueue<LinearizabilityChecker.Operation> history = new ConcurrentLinkedQueue<>();
+        List<Runnable> threads = new ArrayList<>();
+        for (List<PendingOperation> plan : plans) {
+            threads.add(() -> {
+                for (PendingOperation operation : plan) {
+                    scheduler.yieldPoint();
+                    operation.call(ticks::incrementAndGet);
+                    operation.execute();
+                    scheduler.yieldPoint();
+                    history.add(operation.complete(ticks::incrementAndGet));
+                }
+            });
+        }
+        scheduler.run(threads);
+        return new ArrayList<>(history);
+    }
+
+    private static void assertLinearizable(long seed, List<LinearizabilityChecker.Operation> history) {
+        StringBuilder message = new StringBuilder("History of seed " + seed + " is not linearizable:");
+        history.forEach(o -> message.append("\n").append(o));
+        Assertions.assertTrue(new LinearizabilityChecker(NUM_OF_SEATS, history).isLinearizable(),
+                message.toString());
+    }
+
+    @Nested
+    class StressScenarios {
+        @Test
+        public void stress_success_historiesAreLinearizable() throws InterruptedException {
+            for (long seed = 0; seed < NUM_OF_SEEDS; seed++) {
+                // Given threads racing to book, cancel and view the 3 seats of a show
+                // When the operations of the seed are run
+                List<LinearizabilityChecker.Operation> history = runConcurrently(seed);
+
+                // Then every operation should be recorded and the history should be linearizable
+                Assertions.assertEquals(NUM_OF_THREADS * OPS_PER_THREAD, history.size());
+                assertLinearizable(seed, history);
+            }
+        }
+    }
+
+    @Nested
+    class ScheduledScenarios {
+        @Test
+        public void scheduled_success_historiesAreLinearizable() throws InterruptedException {
+            for (long seed = 0; seed < NUM_OF_SEEDS; seed++) {
+                // Given the interleaving picked by a seed
+                // When the operations of the seed are run in that interleaving
+                List<LinearizabilityChecker.Operation> history = runScheduled(seed);
+
+                // Then every operation should be recorded and the history should be linearizable
+                Assertions.assertEquals(NUM_OF_THREADS * OPS_PER_THREAD, history.size());
+                assertLinearizable(seed, history);
+            }
+        }
+
+        @Test
+        public void scheduled_success_seedReplaysSameHistory() throws InterruptedException {
+            for (long seed : new long[] {4, 22, 42, 147}) {
+                // Given a seed
+                // When its interleaving is run 3 times
+                String history = runScheduled(seed).toString();
+
+                // Then every run should record the same history
+                for (int i = 0; i < 2; i++) {
+                    Assertions.assertEquals(history, runScheduled(seed).toString(), "Seed " + seed);
+                }
+            }
+        }
+    }
+
+    @Nested
+    class CheckerScenarios {
+        @Test
+        public void checker_fail_doubleBooking() {
+            // Given 2 bookings of seat A1 that both succeed, where the second starts after the first returns
+            List<LinearizabilityChecker.Operation> history = List.of(
+                    new LinearizabilityChecker.Operation(0, LinearizabilityChecker.BOOK, "90000001", 1,
+                            UUID.randomUUID(), true, 1, 2),
+                    new LinearizabilityChecker.Operation(1, LinearizabilityChecker.BOOK, "90000002", 1,
+                            UUID.randomUUID(), true, 3, 4));
+
+            // When the history is checked
+            // Then it should not be linearizable
+            Assertions.assertFalse(new LinearizabilityChecker(NUM_OF_SEATS, history).isLinearizable());
+        }
+
+        @Test
+        public void checker_success_overlappingOperationsReordered() {
+            // Given an availability check that overlaps a booking of seat A1 and already sees it taken
+            List<LinearizabilityChecker.Operation> history = List.of(
+                    new LinearizabilityChecker.Operation(0, LinearizabilityChecker.AVAILABILITY, null, 0b110, null,
+                            true, 1, 3),
+                    new LinearizabilityChecker.Operation(1, LinearizabilityChecker.BOOK, "90000001", 0b001,
+                            UUID.randomUUID(), true, 2, 4));
+
+            // When the history is checked
+            // Then it should be linearizable with the booking first
+            Assertions.assertTrue(new LinearizabilityChecker(NUM_OF_SEATS, history).isLinearizable());
+        }
+    }
+
+    /**
+     * Lets one thread at a time run to its next scheduling point, picking the thread with a seeded random.
+     * No thread holds a monitor at a scheduling point, so the picked thread never blocks on a stopped thread. Every
+     * pick waits until the other threads have stopped or finished, so the threads to pick from only depend on the
+     * earlier picks.
+     */
+    private static class Scheduler {
+        private static final long TIMEOUT_MILLIS = 10000;
+
+        private final Random random;
+        private final List<Thread> threads = new ArrayList<>();
+        private final HashMap<Long, Integer> indexesById = new HashMap<>();
+        private boolean[] isWaiting;
+        private boolean[] isFinished;
+        // Index of the thread let go by the latest pick, until it takes the pick
+        private int granted = -1;
+
+        private Scheduler(long seed) {
+            this.random = new Random(seed);
+        }
+
+        /**
+         * Stops the current thread until it is picked
+         */
+        private synchronized void yieldPoint() {
+            int index = indexesById.get(Thread.currentThread().getId());
+            isWaiting[index] = true;
+            this.notifyAll();
+            try {
+                while (granted != index) {
+                    this.wait();
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("Interrupted while waiting to be scheduled", e);
+            }
+            granted = -1;
+            isWaiting[index] = false;
+            this.notifyAll();
+        }
+
+        /**
+         * Runs each body on its own thread until every thread has finished
+         *
+         * @param bodies The work of each thread
+         * @throws InterruptedException if the scheduler is interrupted while waiting
+         */
+        private void run(List<Runnable> bodies) throws InterruptedException {
+            synchronized (this) {
+                isWaiting = new boolean[bodies.size()];
+                isFinished = new boolean[bodies.size()];
+                for (int i = 0; i < bodies.size(); i++) {
+                    int index = i;
+                    Thread thread = new Thread(() -> {
+                        try {
+                            this.yieldPoint();
+                            bodies.get(index).run();
+                        } finally {
+                            synchronized (this) {
+                                isFinished[index] = true;
+                                this.notifyAll();
+                            }
+                        }
+                    });
+                    // A thread left waiting by a failed run should not keep the JVM alive
+                    thread.setDaemon(true);
+                    threads.add(thread);
+                    indexesById.put(thread.getId(), index);
+                }
+            }
+            threads.forEach(Thread::start);
+            while (true) {
+                synchronized (this) {
+                    List<Integer> waiting = this.awaitQuiescence();
+                    if (waiting.isEmpty()) {
+                        break;
+                    }
+                    granted = waiting.get(random.nextInt(waiting.size()));
+                    this.notifyAll();
+                    // Let the picked thread take the pick before looking at the threads again
+                    while (granted != -1) {
+                        this.wait();
+                    }
+                }
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        /**
+         * Waits until every thread has stopped at a scheduling point or finished
+         *
+         * @return The indexes of the stopped threads in ascending order, empty once every thread has finished
+         * @throws InterruptedException if the scheduler is interrupted while waiting
+         */
+        private List<Integer> awaitQuiescence() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (true) {
+                List<Integer> waiting = new ArrayList<>();
+                boolean isQuiescent = true;
+                for (int i = 0; i < isWaiting.length; i++) {
+                    if (isWaiting[i]) {
+                        waiting.add(i);
+                    } else if (!isFinished[i]) {
+                        isQuiescent = false;
+                    }
+                }
+                if (isQuiescent) {
+                    return waiting;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    // Also the case if the running thread is deadlocked
+                    Assertions.fail("Threads did not reach a scheduling point in time");
+                }
+                this.wait(remaining);
+            }
+        }
+    }
+
+    /**
+     * A show that calls a hook before each method the booking handler checks or changes its seats with, unless the
+     * calling thread holds the show
+     */
+    private static class InterleavedShow extends Show {
+        private final Runnable hook;
+
+        private InterleavedShow(Runnable hook) {
+            super(1, AdminCommandHandler.createSeats(1, NUM_OF_SEATS), 1, NUM_OF_SEATS, new ArrayList<>(), 2);
+            this.hook = hook;
+        }
+
+        private void yieldPoint() {
+            // A thread stopped while holding the show would leave the others to race for it once it goes on
+            if (!Thread.holdsLock(this)) {
+                hook.run();
+            }
+        }
+
+        @Override
+        public boolean isOccupied(int seatIndex) {
+            this.yieldPoint();
+            return super.isOccupied(seatIndex);
+        }
+
+        @Override
+        public boolean hasBookedBefore(String phoneNumber) {
+            this.yieldPoint();
+            return super.hasBookedBefore(phoneNumber);
+        }
+
+        @Override
+        public void addBooking(Ticket ticket) {
+            this.yieldPoint();
+            super.addBooking(ticket);
+        }
+
+        @Override
+        public void cancelBooking(UUID ticketNumber) throws BookingException {
+            this.yieldPoint();
+            super.cancelBooking(ticketNumber);
+        }
+
+        @Override
+        public HashMap<String, Seat> getAvailableSeats() {
+            this.yieldPoint();
+            return super.getAvailableSeats();
+        }
+    }
+
+    /**
+     * A show with 1 row of 3 seats and the handler that books it
+     */
+    private static class Run {
+        private final HashMap<UUID, Ticket> tickets = new HashMap<>();
+        private final PhoneNumberIndex bookingsByPhone = new PhoneNumberIndex();
+        // The clock never moves, so every booking stays cancellable
+        private final MutableClock clock = new MutableClock();
+        private final InMemoryShowRepository shows = new InMemoryShowRepository(new HashMap<>());
+        private final BuyerCommandHandler buyerCommandHandler = new BuyerCommandHandler(shows, tickets,
+                bookingsByPhone, clock, new ContiguousSeatIndex());
+        private final Show show;
+
+        /**
+         * Creates the show
+         *
+         * @param hook The hook to call inside the show wherever the threads should be able to switch
+         */
+        private Run(Runnable hook) {
+            show = new InterleavedShow(hook);
+            shows.add(show);
+        }
+    }
+
+    /**
+     * An operation that is called, executed and completed in separate steps
+     */
+    private static class PendingOperation {
+        private final Run run;
+        private final int thread;
+        private final String kind;
+        private String phoneNumber;
+        private UUID ticketNumber;
+        private int seats;
+        private boolean succeeded;
+        private long call;
+
+        private PendingOperation(Run run, int thread, String kind, String phoneNumber, int seats, UUID ticketNumber) {
+            this.run = run;
+            this.thread = thread;
+            this.kind = kind;
+            this.phoneNumber = phoneNumber;
+            this.seats = seats;
+            this.ticketNumber = ticketNumber;
+        }
+
+        private void call(LongSupplier tick) {
+            call = tick.getAsLong();
+        }
+
+        private void execute() {
+            try {
+                switch (kind) {
+                    case LinearizabilityChecker.BOOK:
+                        run.buyerCommandHandler.book(run.show.getNumber(), phoneNumber, seatNumbersOf(seats),
+                                ticketNumber, run.clock.millis());
+                        break;
+                    case LinearizabilityChecker.CANCEL:
+                        run.buyerCommandHandler.cancel(ticketNumber, phoneNumber);
+                        break;
+                    default:
+                        for (Seat seat : run.show.getAvailableSeats().values()) {
+                            seats |= 1 << run.show.seatIndexOf(seat.getSeatNumber());
+                        }
+                        break;
+                }
+                succeeded = true;
+            } catch (Exception e) {
+                // Rejected operations are part of the history, the checker decides whether they should have been
+                succeeded = false;
+            }
+        }
+
+        private LinearizabilityChecker.Operation complete(LongSupplier tick) {
+            return new LinearizabilityChecker.Operation(thread, kind, phoneNumber, seats, ticketNumber, succeeded,
+                    call, tick.getAsLong());
+        }
+
+        private static String seatNumbersOf(int seats) {
+            StringJoiner seatNumbers = new StringJoiner(",");
+            for (int i = 0; i < NUM_OF_SEATS; i++) {
+                if ((seats & (1 << i)) != 0) {
+                    seatNumbers.add("A" + (i + 1));
+                }
+            }
+            return seatNumbers.toString();
+        }
+    }
+}
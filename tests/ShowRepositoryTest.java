@@ -0,0 +1,218 @@
+package tests;
+
+import exceptions.BookingException;
+import exceptions.CancelBookingException;
+import exceptions.InvalidSetupException;
+import exceptions.NoSuchShowException;
+import objects.Show;
+import objects.ShowStats;
+import objects.Ticket;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import utility.AdminCommandHandler;
+import utility.BuyerCommandHandler;
+import utility.ContiguousSeatIndex;
+import utility.DiskBackedShowRepository;
+import utility.PhoneNumberIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+public class ShowRepositoryTest {
+    private final HashMap<UUID, Ticket> tickets = new HashMap<>();
+    private final PhoneNumberIndex bookingsByPhone = new PhoneNumberIndex();
+    private final MutableClock clock = new MutableClock();
+    private final DiskBackedShowRepository shows;
+
+    AdminCommandHandler adminCommandHandler;
+    BuyerCommandHandler buyerCommandHandler;
+
+    public ShowRepositoryTest() throws IOException {
+        // Given a repository that keeps 1 closed show in memory
+        shows = new DiskBackedShowRepository(1, Files.createTempDirectory("shows"), tickets, bookingsByPhone);
+        ContiguousSeatIndex showsBySeatsTogether = new ContiguousSeatIndex();
+        adminCommandHandler = new AdminCommandHandler(shows, tickets, bookingsByPhone, showsBySeatsTogether);
+        buyerCommandHandler = new BuyerCommandHandler(shows, tickets, bookingsByPhone, clock, showsBySeatsTogether);
+    }
+
+    @Nested
+    class EvictionScenarios {
+        @Test
+        public void evict_success_closedShowLoadedOnDemand() throws InvalidSetupException, BookingException,
+                NoSuchShowException {
+            // Given a closed show with a booking
+            adminCommandHandler.setup(1, 3, 3, 2);
+            Ticket ticket = buyerCommandHandler.book(1, "92344321", "A1,A2");
+            adminCommandHandler.closeShow(1);
+            adminCommandHandler.setup(2, 3, 3, 2);
+
+            // When another show is closed
+            adminCommandHandler.closeShow(2);
+
+            // Then the first show should be evicted along with its tickets
+            Assertions.assertEquals(1, shows.getNumOfShowsInMemory());
+            Assertions.assertEquals(2, shows.size());
+            Assertions.assertTrue(shows.contains(1));
+            Assertions.assertFalse(tickets.containsKey(ticket.getTicketNumber()));
+
+            // And when the first show is looked up again
+            Show show = shows.get(1);
+
+            // Then it should be loaded back with its earlier booking
+            Assertions.assertEquals(1, show.getTickets().size());
+            Assertions.assertEquals(7, show.getAvailableSeats().size());
+            Assertions.assertEquals(2, show.getSeatsSold());
+            Assertions.assertTrue(show.isClosed());
+            Assertions.assertTrue(tickets.containsKey(ticket.getTicketNumber()));
+        }
+
+        @Test
+        public void evict_success_loadedShowEvictedAgain() throws InvalidSetupException, NoSuchShowException {
+            // Given 2 closed shows, where the first one is evicted
+            adminCommandHandler.setup(1, 3, 3, 2);
+            adminCommandHandler.closeShow(1);
+            adminCommandHandler.setup(2, 3, 3, 2);
+            adminCommandHandler.closeShow(2);
+
+            // When the first show is loaded back
+            shows.get(1);
+
+            // Then the second show should be evicted to make room
+            Assertions.assertEquals(1, shows.getNumOfShowsInMemory());
+            Assertions.assertEquals(2, shows.size());
+        }
+
+        @Test
+        public void evict_success_evictedBookingsStillFound() throws InvalidSetupException, BookingException,
+                NoSuchShowException {
+            // Given an evicted show with a booking
+            adminCommandHandler.setup(1, 3, 3, 2);
+            Ticket ticket = buyerCommandHandler.book(1, "92344321", "A1,A2");
+            adminCommandHandler.closeShow(1);
+            adminCommandHandler.setup(2, 3, 3, 2);
+            Ticket otherTicket = buyerCommandHandler.book(2, "92344321", "C3");
+            adminCommandHandler.setup(3, 3, 3, 2);
+            adminCommandHandler.cancelShow(3);
+
+            // When the buyer views their bookings
+            List<Ticket> bookings = buyerCommandHandler.retrieveAndPrintBookings("92344321");
+
+            // Then the booking of the evicted show should be found without loading it
+            Assertions.assertEquals(2, shows.getNumOfShowsInMemory());
+            Assertions.assertEquals(List.of(otherTicket.getTicketNumber(), ticket.getTicketNumber()),
+                    List.of(bookings.get(0).getTicketNumber(), bookings.get(1).getTicketNumber()));
+            Assertions.assertEquals(List.of("A1", "A2"), List.of(bookings.get(1).getSeats().get(0).getSeatNumber(),
+                    bookings.get(1).getSeats().get(1).getSeatNumber()));
+
+            // And cancelling it should fail as its cancellation window has passed
+            Exception exception = Assertions.assertThrows(CancelBookingException.class, () ->
+                    buyerCommandHandler.cancel(ticket.getTicketNumber(), "92344321"));
+            Assertions.assertEquals("You cannot cancel your booking as it passed the window of: 2 minutes",
+                    exception.getMessage());
+
+            // And the dashboard should still show every show
+            Assertions.assertEquals(3, adminCommandHandler.viewAndPrintDashboard(shows.size()).size());
+        }
+
+        @Test
+        public void evict_success_openShowsStayInMemory() throws InvalidSetupException, BookingException,
+                NoSuchShowException {
+            // Given a created show without bookings and a show whose bookings are past their cancellation window
+            adminCommandHandler.setup(1, 3, 3, 2);
+            adminCommandHandler.setup(2, 3, 3, 2);
+            buyerCommandHandler.book(2, "92344321", "A1,A2");
+            clock.millis += 10 * 60 * 1000L;
+            buyerCommandHandler.finalizeExpiredTickets();
+
+            // When another show is set up
+            adminCommandHandler.setup(3, 3, 3, 2);
+
+            // Then every show should stay in memory, as none of them has been closed
+            Assertions.assertEquals(3, shows.getNumOfShowsInMemory());
+            Assertions.assertEquals(1, tickets.size());
+        }
+
+        @Test
+        public void evict_success_reloadedShowFoundOnce() throws InvalidSetupException, BookingException,
+                NoSuchShowException {
+            // Given an evicted show with a booking that has been loaded back and evicted again
+            adminCommandHandler.setup(1, 3, 3, 2);
+            Ticket ticket = buyerCommandHandler.book(1, "92344321", "A1,A2");
+            adminCommandHandler.closeShow(1);
+            adminCommandHandler.setup(2, 3, 3, 2);
+            adminCommandHandler.closeShow(2);
+            shows.get(1);
+            shows.get(2);
+            Assertions.assertFalse(tickets.containsKey(ticket.getTicketNumber()));
+
+            // When the buyer views their bookings
+            List<Ticket> bookings = buyerCommandHandler.retrieveAndPrintBookings("92344321");
+
+            // Then the booking should be found once
+            Assertions.assertEquals(1, bookings.size());
+            Assertions.assertEquals(ticket.getTicketNumber(), bookings.get(0).getTicketNumber());
+            Assertions.assertEquals(ticket.getTicketNumber(),
+                    shows.findStoredTicket(ticket.getTicketNumber()).getTicketNumber());
+            Assertions.assertNull(shows.findStoredTicket(UUID.randomUUID()));
+        }
+
+        @Test
+        public void evict_success_dashboardCountersKept() throws InvalidSetupException, BookingException,
+                NoSuchShowException {
+            // Given an evicted show with 3 of its 9 seats sold
+            adminCommandHandler.setup(1, 3, 3, 2);
+            buyerCommandHandler.book(1, "92344321", "A1,A2");
+            buyerCommandHandler.book(1, "92344322", "B1");
+            adminCommandHandler.closeShow(1);
+            adminCommandHandler.setup(2, 3, 3, 2);
+            adminCommandHandler.closeShow(2);
+            Assertions.assertEquals(1, shows.getNumOfShowsInMemory());
+
+            // When the dashboard is viewed
+            ShowStats stats = adminCommandHandler.viewAndPrintDashboard(1).get(0);
+
+            // Then the counters of the evicted show should be kept in memory
+            Assertions.assertEquals(1, stats.getNumber());
+            Assertions.assertEquals(3, stats.getSeatsSold());
+            Assertions.assertEquals(9, stats.getNumOfSeats());
+            Assertions.assertEquals(2, stats.getTicketsSold());
+            Assertions.assertTrue(stats.isClosed());
+            Assertions.assertEquals(1, shows.getNumOfShowsInMemory());
+        }
+
+        @Test
+        public void evict_fail_bookClosedShow() throws InvalidSetupException, NoSuchShowException {
+            // Given an evicted show
+            adminCommandHandler.setup(1, 3, 3, 2);
+            adminCommandHandler.closeShow(1);
+            adminCommandHandler.setup(2, 3, 3, 2);
+            adminCommandHandler.closeShow(2);
+
+            // When the show is booked
+            // Then the booking should fail
+            Exception exception = Assertions.assertThrows(BookingException.class, () ->
+                    buyerCommandHandler.book(1, "92344321", "A1"));
+            Assertions.assertEquals("Show 1 is closed.", exception.getMessage());
+        }
+
+        @Test
+        public void evict_fail_duplicateShowOnDisk() throws InvalidSetupException, NoSuchShowException {
+            // Given an evicted show
+            adminCommandHandler.setup(1, 3, 3, 2);
+            adminCommandHandler.closeShow(1);
+            adminCommandHandler.setup(2, 3, 3, 2);
+            adminCommandHandler.closeShow(2);
+            Assertions.assertEquals(1, shows.getNumOfShowsInMemory());
+
+            // When a show with the same show number is set up
+            // Then the show setup should fail
+            Exception exception = Assertions.assertThrows(InvalidSetupException.class, () ->
+                    adminCommandHandler.setup(1, 3, 3, 2));
+            Assertions.assertEquals("Show 1 already exists.", exception.getMessage());
+        }
+    }
+}
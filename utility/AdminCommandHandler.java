@@ -2,17 +2,48 @@ package utility;
 
 import exceptions.InvalidSetupException;
 import exceptions.NoSuchShowException;
+import objects.Refund;
 import objects.Seat;
 import objects.Show;
+import objects.ShowStats;
 import objects.Ticket;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 public class AdminCommandHandler {
-    private final HashMap<Integer, Show> shows;
+    private final ShowRepository shows;
+    private final HashMap<UUID, Ticket> tickets;
+    private final PhoneNumberIndex bookingsByPhone;
+    private final ContiguousSeatIndex showsBySeatsTogether;
+
     public AdminCommandHandler(HashMap<Integer, Show> shows) {
+        this(shows, new HashMap<>(), new PhoneNumberIndex());
+    }
+
+    public AdminCommandHandler(HashMap<Integer, Show> shows, HashMap<UUID, Ticket> tickets,
+                               PhoneNumberIndex bookingsByPhone) {
+        this(shows, tickets, bookingsByPhone, new ContiguousSeatIndex());
+    }
+
+    public AdminCommandHandler(HashMap<Integer, Show> shows, HashMap<UUID, Ticket> tickets,
+                               PhoneNumberIndex bookingsByPhone, ContiguousSeatIndex showsBySeatsTogether) {
+        this(new InMemoryShowRepository(shows), tickets, bookingsByPhone, showsBySeatsTogether);
+    }
+
+    public AdminCommandHandler(ShowRepository shows, HashMap<UUID, Ticket> tickets, PhoneNumberIndex bookingsByPhone,
+                               ContiguousSeatIndex showsBySeatsTogether) {
         this.shows = shows;
+        this.tickets = tickets;
+        this.bookingsByPhone = bookingsByPhone;
+        this.showsBySeatsTogether = showsBySeatsTogether;
     }
 
     /**
@@ -26,27 +57,37 @@ public class AdminCommandHandler {
      * @throws InvalidSetupException if the setup details are invalid
      */
     public Show setup(int showNumber, int numOfRows, int numOfSeats, int cancellationWindow) throws InvalidSetupException {
-        // Seat validation
-        if (numOfSeats > 10) {
-            throw new InvalidSetupException("Number of seats must be 10 or less.");
-        }
-        if (numOfRows > 26) {
-            throw new InvalidSetupException("Number of rows must be 26 or less.");
-        }
-        // Show number validation
-        if (shows.containsKey(showNumber)) {
-            throw new InvalidSetupException("Show " + showNumber + " already exists.");
-        }
-        ArrayList<Seat> seats = new ArrayList<>();
-        for (int i = 0; i < numOfRows; i++) {
-            for (int j = 0; j < numOfSeats; j++){
-                String alphabets = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-                seats.add(new Seat(alphabets.charAt(i) + Integer.toString(j + 1), false));
+        BookingOperationEvent event = new BookingOperationEvent("Setup", showNumber);
+        try {
+            // Seat validation
+            if (numOfSeats > 10) {
+                throw new InvalidSetupException("Number of seats must be 10 or less.");
+            }
+            if (numOfSeats < 1) {
+                throw new InvalidSetupException("Number of seats must be at least 1.");
+            }
+            if (numOfRows > 26) {
+                throw new InvalidSetupException("Number of rows must be 26 or less.");
             }
+            if (numOfRows < 1) {
+                throw new InvalidSetupException("Number of rows must be at least 1.");
+            }
+            // Show number validation
+            if (shows.contains(showNumber)) {
+                throw new InvalidSetupException("Show " + showNumber + " already exists.");
+            }
+            Show show = new Show(showNumber, createSeats(numOfRows, numOfSeats), numOfRows, numOfSeats,
+                    new ArrayList<>(), cancellationWindow);
+            this.shows.add(show);
+            showsBySeatsTogether.update(show);
+            event.setSeatCount(show.getSeats().size());
+            return show;
+        } catch (InvalidSetupException e) {
+            event.setFailure(e);
+            throw e;
+        } finally {
+            event.finish();
         }
-        Show show = new Show(showNumber, seats, new ArrayList<>(), cancellationWindow);
-        this.shows.put(showNumber, show);
-        return show;
     }
 
     /**
@@ -57,27 +98,177 @@ public class AdminCommandHandler {
      * @throws NoSuchShowException if the show does not exist
      */
     public Show viewAndPrintDetails(int showNumber) throws NoSuchShowException {
+        return this.viewAndPrintDetails(showNumber, System.out);
+    }
+
+    /**
+     * Views and prints the booking details for a given show
+     *
+     * @param showNumber The show number to view
+     * @param out The stream to print to
+     * @return The show to view
+     * @throws NoSuchShowException if the show does not exist
+     */
+    public Show viewAndPrintDetails(int showNumber, PrintStream out) throws NoSuchShowException {
+        BookingOperationEvent event = new BookingOperationEvent("View", showNumber);
+        try {
+            Show show = this.printDetails(showNumber, out);
+            event.setSeatCount(show.getSeatsSold());
+            event.setTicketsScanned(show.getTickets().size());
+            return show;
+        } catch (NoSuchShowException e) {
+            event.setFailure(e);
+            throw e;
+        } finally {
+            event.finish();
+        }
+    }
+
+    private Show printDetails(int showNumber, PrintStream out) throws NoSuchShowException {
         Show show = shows.get(showNumber);
         if (show == null) {
             throw new NoSuchShowException();
         }
         // Print show
-        System.out.println("Show number: " + show.getNumber());
+        out.println("Show number: " + show.getNumber());
         if (show.getTickets().size() == 0){
-            System.out.println("No bookings yet.");
+            out.println("No bookings yet.");
         }
         // Loop for each ticket and print ticket
         for (Ticket ticket: show.getTickets()) {
-            System.out.println("--------------------------------------------");
-            System.out.println("Ticket number: " + ticket.getTicketNumber());
-            System.out.println("Buyer phone number: " + ticket.getPhoneNumber());
-            System.out.println("Seats booked: ");
+            out.println("--------------------------------------------");
+            out.println("Ticket number: " + ticket.getTicketNumber());
+            out.println("Buyer phone number: " + ticket.getPhoneNumber());
+            out.println("Seats booked: ");
             for (Seat seat: ticket.getSeats()) {
-                System.out.print(seat.getSeatNumber() + " ");
+                out.print(seat.getSeatNumber() + " ");
             }
-            System.out.println(" ");
+            out.println(" ");
         }
-        System.out.println("--------------------------------------------");
+        out.println("--------------------------------------------");
         return show;
     }
+
+    /**
+     * Cancels every booking for a given show and refunds its buyers
+     *
+     * @param showNumber The show number to cancel
+     * @return The refunds for the cancelled tickets
+     * @throws NoSuchShowException if the show does not exist
+     */
+    public List<Refund> cancelShow(int showNumber) throws NoSuchShowException {
+        Show show = shows.get(showNumber);
+        if (show == null) {
+            throw new NoSuchShowException();
+        }
+        ArrayList<Ticket> cancelled;
+        synchronized (show) {
+            cancelled = show.cancelAllBookings();
+            showsBySeatsTogether.update(show);
+            synchronized (tickets) {
+                for (Ticket ticket : cancelled) {
+                    tickets.remove(ticket.getTicketNumber());
+                    bookingsByPhone.remove(Long.parseLong(ticket.getPhoneNumber()), ticket);
+                }
+            }
+        }
+        shows.markClosed(show);
+        // Refunds only read the cancelled tickets, so they can be built in parallel batches
+        return cancelled.parallelStream().map(Refund::new).collect(Collectors.toList());
+    }
+
+    /**
+     * Closes a show once it has run, so that it takes no more bookings and its tickets can no longer be cancelled
+     *
+     * @param showNumber The show number to close
+     * @return The closed show
+     * @throws NoSuchShowException if the show does not exist
+     */
+    public Show closeShow(int showNumber) throws NoSuchShowException {
+        Show show = shows.get(showNumber);
+        if (show == null) {
+            throw new NoSuchShowException();
+        }
+        synchronized (show) {
+            synchronized (tickets) {
+                for (Ticket ticket : show.getTickets()) {
+                    ticket.setFinalized(true);
+                }
+            }
+            show.setClosed(true);
+            showsBySeatsTogether.update(show);
+        }
+        shows.markClosed(show);
+        return show;
+    }
+
+    /**
+     * Views and prints the fill rate of every show, ordered from the fullest show
+     *
+     * @param limit The maximum number of shows to return
+     * @return The counters of the fullest shows in descending order of fill rate
+     */
+    public List<ShowStats> viewAndPrintDashboard(int limit) {
+        return this.viewAndPrintDashboard(limit, System.out);
+    }
+
+    /**
+     * Views and prints the fill rate of every show, ordered from the fullest show
+     *
+     * @param limit The maximum number of shows to return
+     * @param out The stream to print to
+     * @return The counters of the fullest shows in descending order of fill rate
+     */
+    public List<ShowStats> viewAndPrintDashboard(int limit, PrintStream out) {
+        // Keep the top shows in a min-heap so that only the limit is ever sorted
+        Comparator<ShowStats> byFillRate = Comparator.comparingDouble(ShowStats::getFillRate)
+                .thenComparing(ShowStats::getNumber, Comparator.reverseOrder());
+        PriorityQueue<ShowStats> topShows = new PriorityQueue<>(byFillRate);
+        for (ShowStats show : shows.getAllStats()) {
+            if (topShows.size() < limit) {
+                topShows.add(show);
+            } else if (limit > 0 && byFillRate.compare(show, topShows.peek()) > 0) {
+                topShows.poll();
+                topShows.add(show);
+            }
+        }
+        List<ShowStats> dashboard = new ArrayList<>(topShows.size());
+        while (!topShows.isEmpty()) {
+            dashboard.add(topShows.poll());
+        }
+        Collections.reverse(dashboard);
+        // Print dashboard
+        out.println("Dashboard: ");
+        if (dashboard.isEmpty()) {
+            out.println("No shows yet.");
+        }
+        for (ShowStats show : dashboard) {
+            out.println("--------------------------------------------");
+            out.println("Show number: " + show.getNumber());
+            out.println("Seats sold: " + show.getSeatsSold() + "/" + show.getNumOfSeats() +
+                    String.format(" (%.2f%%)", show.getFillRate()));
+            out.println("Tickets sold: " + show.getTicketsSold() + ", cancellations: " +
+                    show.getCancellations());
+        }
+        out.println("--------------------------------------------");
+        return dashboard;
+    }
+
+    /**
+     * Creates the seat layout for a show
+     *
+     * @param numOfRows The number of rows
+     * @param numOfSeats The number of seats per row
+     * @return The seats, row by row
+     */
+    public static ArrayList<Seat> createSeats(int numOfRows, int numOfSeats) {
+        ArrayList<Seat> seats = new ArrayList<>();
+        for (int i = 0; i < numOfRows; i++) {
+            for (int j = 0; j < numOfSeats; j++){
+                String alphabets = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+                seats.add(new Seat(alphabets.charAt(i) + Integer.toString(j + 1)));
+            }
+        }
+        return seats;
+    }
 }
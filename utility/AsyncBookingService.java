@@ -0,0 +1,258 @@
+package utility;
+
+import objects.Cancellation;
+import objects.Ticket;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Non-blocking front of BuyerCommandHandler that applies bookings and cancellations in batches.
+ * A single committer thread applies every request in a batch, journals them with one commit and then completes all
+ * of their futures together. Waitlisted buyers that a cancellation booked are only notified after that commit.
+ * Once started, every booking and cancellation should go through this service.
+ *
+ * If the journal fails, the applied batch can no longer be made durable, so the service stops: the batch and every
+ * later request fail, and the state in memory should be rebuilt with BookingJournal.replay before taking requests
+ * again. The same replay restores the bookings at startup, before the service is created.
+ */
+public class AsyncBookingService implements AutoCloseable {
+    private final BuyerCommandHandler buyerCommandHandler;
+    private final BookingJournal journal;
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+    private final BlockingQueue<Request<?>> requests = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    // Queued by close to wake the committer up once every earlier request is committed
+    private final Request<?> closeRequest = new Request<>(null, null, null);
+    private boolean isRunning = true;
+    // Set once a commit fails, after which the service takes no more requests
+    private IOException journalFailure;
+
+    /**
+     * Starts the committer thread
+     *
+     * @param buyerCommandHandler The handler that applies the requests
+     * @param journal The journal that each batch is committed to
+     * @param maxBatchSize The maximum number of requests in a batch
+     * @param maxBatchDelayMillis The maximum time a request waits for its batch to fill up
+     */
+    public AsyncBookingService(BuyerCommandHandler buyerCommandHandler, BookingJournal journal, int maxBatchSize,
+                               long maxBatchDelayMillis) {
+        this.buyerCommandHandler = buyerCommandHandler;
+        this.journal = journal;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxBatchDelayMillis);
+        this.committer = new Thread(this::commitBatches, "booking-committer");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Books a ticket for a given show once its batch is committed
+     *
+     * @param showNumber The show number for the booking
+     * @param phoneNumber The phone number of the buyer
+     * @param seats The seats to book
+     * @return The future of the newly created ticket, which fails with the exception thrown by the booking
+     */
+    public CompletableFuture<Ticket> bookAsync(int showNumber, String phoneNumber, String seats) {
+        return this.submit(() -> buyerCommandHandler.book(showNumber, phoneNumber, seats),
+                ticket -> List.of(BookingJournal.bookRecord(ticket)), null);
+    }
+
+    /**
+     * Cancels a booking for a given ticket number once its batch is committed
+     *
+     * @param ticketNumber The ticket number for the booking
+     * @param phoneNumber The phone number of the buyer
+     * @return The future of the cancellation, which fails with the exception thrown by the cancellation. The bookings
+     * made for waitlisted buyers from the freed seats are journalled along with it, and those buyers are notified once
+     * it is committed
+     */
+    public CompletableFuture<Cancellation> cancelAsync(UUID ticketNumber, String phoneNumber) {
+        return this.submit(() -> buyerCommandHandler.cancelWithoutNotifying(ticketNumber, phoneNumber),
+                BookingJournal::cancellationRecords, buyerCommandHandler::notifyWaitlist);
+    }
+
+    /**
+     * Commits the requests that are already queued and stops the committer thread.
+     * If the calling thread is interrupted, it stops waiting for the commit and keeps its interrupt status.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!isRunning) {
+                return;
+            }
+            isRunning = false;
+            requests.add(closeRequest);
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized <T> CompletableFuture<T> submit(Callable<T> operation, Function<T, List<String>> toRecords,
+                                                         Consumer<T> onCommitted) {
+        Request<T> request = new Request<>(operation, toRecords, onCommitted);
+        if (journalFailure != null) {
+            request.future.completeExceptionally(new IllegalStateException(
+                    "Booking service stopped after a journal failure.", journalFailure));
+            return request.future;
+        }
+        if (!isRunning) {
+            request.future.completeExceptionally(new IllegalStateException("Booking service is closed."));
+            return request.future;
+        }
+        requests.add(request);
+        return request.future;
+    }
+
+    private void commitBatches() {
+        List<Request<?>> batch = new ArrayList<>(maxBatchSize);
+        boolean isClosing = false;
+        while (!isClosing) {
+            try {
+                isClosing = this.collectBatch(batch);
+            } catch (InterruptedException e) {
+                // Not expected as the thread is never interrupted, commit what has been collected and stop
+                isClosing = true;
+            }
+            if (!batch.isEmpty()) {
+                isClosing |= !this.commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Collects the next batch of requests
+     *
+     * @param batch The list to add the requests to
+     * @return The boolean value whether the service was closed after the collected requests
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private boolean collectBatch(List<Request<?>> batch) throws InterruptedException {
+        Request<?> first = requests.take();
+        if (first == closeRequest) {
+            return true;
+        }
+        batch.add(first);
+        // The first request bounds how long the whole batch waits
+        long deadline = System.nanoTime() + maxBatchDelayNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            Request<?> request = remaining > 0 ? requests.poll(remaining, TimeUnit.NANOSECONDS) : requests.poll();
+            if (request == null) {
+                return false;
+            }
+            if (request == closeRequest) {
+                return true;
+            }
+            batch.add(request);
+        }
+        return false;
+    }
+
+    /**
+     * Applies and journals a batch of requests and completes their futures
+     *
+     * @param batch The requests to commit
+     * @return The boolean value whether the journal is still usable
+     */
+    private boolean commit(List<Request<?>> batch) {
+        Exception[] failures = new Exception[batch.size()];
+        IOException commitFailure = null;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                List<String> records;
+                try {
+                    records = batch.get(i).apply();
+                } catch (Exception e) {
+                    failures[i] = e;
+                    continue;
+                }
+                for (String record : records) {
+                    journal.append(record);
+                }
+            }
+            journal.commit();
+        } catch (IOException e) {
+            // The batch is already applied in memory but not durable, so none of it is reported as successful
+            commitFailure = e;
+        }
+        List<Request<?>> queued = new ArrayList<>();
+        if (commitFailure != null) {
+            // Stop taking requests before reporting the failure, so that none is applied on top of the state that
+            // the journal is missing
+            synchronized (this) {
+                journalFailure = commitFailure;
+                isRunning = false;
+                requests.drainTo(queued);
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Request<?> request = batch.get(i);
+            if (failures[i] != null) {
+                request.future.completeExceptionally(failures[i]);
+            } else if (commitFailure != null) {
+                request.future.completeExceptionally(commitFailure);
+            } else {
+                request.complete();
+            }
+        }
+        for (Request<?> request : queued) {
+            if (request != closeRequest) {
+                request.future.completeExceptionally(new IllegalStateException(
+                        "Booking service stopped after a journal failure.", commitFailure));
+            }
+        }
+        return commitFailure == null;
+    }
+
+    private static class Request<T> {
+        private final Callable<T> operation;
+        // Returns the records to journal for the result of the operation
+        private final Function<T, List<String>> toRecords;
+        // Called with the result once it is committed, or null if there is nothing to do
+        private final Consumer<T> onCommitted;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+
+        private Request(Callable<T> operation, Function<T, List<String>> toRecords, Consumer<T> onCommitted) {
+            this.operation = operation;
+            this.toRecords = toRecords;
+            this.onCommitted = onCommitted;
+        }
+
+        /**
+         * Applies the operation and keeps its result until the batch is committed
+         *
+         * @return The records to journal
+         * @throws Exception if the operation fails
+         */
+        private List<String> apply() throws Exception {
+            result = operation.call();
+            return toRecords.apply(result);
+        }
+
+        private void complete() {
+            future.complete(result);
+            if (onCommitted != null) {
+                onCommitted.accept(result);
+            }
+        }
+    }
+}
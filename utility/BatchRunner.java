@@ -0,0 +1,160 @@
+package utility;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a script of commands, one per line, and prints the results in the order of the script.
+ * Consecutive Book, Availability and View commands only touch their own show, so they are run in parallel with one
+ * task per show. Every other command waits for the commands before it and runs on its own.
+ */
+public class BatchRunner {
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    // Number of lines read and executed at a time, which bounds the output held in memory
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    private final CommandProcessor commandProcessor;
+    private final int numOfThreads;
+
+    public BatchRunner(CommandProcessor commandProcessor) {
+        this(commandProcessor, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchRunner(CommandProcessor commandProcessor, int numOfThreads) {
+        this.commandProcessor = commandProcessor;
+        this.numOfThreads = numOfThreads;
+    }
+
+    /**
+     * Runs every command in a script file
+     *
+     * @param script The path of the script
+     * @param out The stream to print the results to, which should be buffered
+     * @throws IOException if the script cannot be read
+     */
+    public void run(Path script, PrintStream out) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(script),
+                StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line);
+                if (chunk.size() == CHUNK_SIZE) {
+                    this.runChunk(chunk, out, executor);
+                    chunk.clear();
+                }
+            }
+            this.runChunk(chunk, out, executor);
+        } finally {
+            executor.shutdown();
+            out.flush();
+        }
+    }
+
+    private void runChunk(List<String> commands, PrintStream out, ExecutorService executor) {
+        Integer[] showNumbers = new Integer[commands.size()];
+        for (int i = 0; i < commands.size(); i++) {
+            showNumbers[i] = showNumberOf(commands.get(i));
+        }
+        int i = 0;
+        while (i < commands.size()) {
+            if (showNumbers[i] == null) {
+                commandProcessor.execute(commands.get(i), out);
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < commands.size() && showNumbers[end] != null) {
+                end++;
+            }
+            this.runInParallel(commands, showNumbers, i, end, out, executor);
+            i = end;
+        }
+    }
+
+    private void runInParallel(List<String> commands, Integer[] showNumbers, int start, int end, PrintStream out,
+                               ExecutorService executor) {
+        // Group the commands by show, keeping their order within each show
+        LinkedHashMap<Integer, List<Integer>> commandsByShow = new LinkedHashMap<>();
+        for (int i = start; i < end; i++) {
+            commandsByShow.computeIfAbsent(showNumbers[i], k -> new ArrayList<>()).add(i);
+        }
+        if (commandsByShow.size() == 1) {
+            for (int i = start; i < end; i++) {
+                commandProcessor.execute(commands.get(i), out);
+            }
+            return;
+        }
+        ByteArrayOutputStream[] results = new ByteArrayOutputStream[end - start];
+        List<Callable<Void>> tasks = new ArrayList<>(commandsByShow.size());
+        for (List<Integer> showCommands : commandsByShow.values()) {
+            tasks.add(() -> {
+                for (int i : showCommands) {
+                    ByteArrayOutputStream result = new ByteArrayOutputStream();
+                    commandProcessor.execute(commands.get(i), new PrintStream(result, false, StandardCharsets.UTF_8));
+                    results[i - start] = result;
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected state: batch command failed", e.getCause());
+        }
+        // Print the results in the order of the script
+        for (ByteArrayOutputStream result : results) {
+            out.write(result.toByteArray(), 0, result.size());
+        }
+    }
+
+    /**
+     * Returns the show that a command is limited to
+     *
+     * @param command The command line
+     * @return The show number, or null if the command may touch more than one show
+     */
+    private static Integer showNumberOf(String command) {
+        String[] commandline = command.split(" ");
+        switch (commandline[0]) {
+            case "Book":
+                if (commandline.length != 4) {
+                    return null;
+                }
+                break;
+            case "Availability":
+            case "View":
+                if (commandline.length != 2) {
+                    return null;
+                }
+                break;
+            default:
+                return null;
+        }
+        try {
+            return Integer.parseInt(commandline[1]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package utility;
+
+import exceptions.BookingException;
+import exceptions.NoSuchShowException;
+import exceptions.NoSuchTicketException;
+import objects.Cancellation;
+import objects.Seat;
+import objects.Ticket;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * Append-only file of applied bookings and cancellations, one record per line.
+ * A cancellation is followed by the bookings made for waitlisted buyers from its seats.
+ * Records are buffered by append and only made durable by commit, so several records can share one fsync.
+ */
+public class BookingJournal implements Closeable {
+    private final FileOutputStream file;
+    private final BufferedWriter writer;
+    private int commits;
+
+    public BookingJournal(Path path) throws IOException {
+        this.file = new FileOutputStream(path.toFile(), true);
+        this.writer = new BufferedWriter(new OutputStreamWriter(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the number of times the journal has been synced to disk
+     *
+     * @return The number of commits
+     */
+    public int getCommits() {
+        return commits;
+    }
+
+    /**
+     * Buffers a record until the next commit
+     *
+     * @param record The record to append
+     * @throws IOException if the record cannot be written
+     */
+    public void append(String record) throws IOException {
+        writer.write(record);
+        writer.newLine();
+    }
+
+    /**
+     * Writes the buffered records and syncs them to disk
+     *
+     * @throws IOException if the records cannot be written
+     */
+    public void commit() throws IOException {
+        writer.flush();
+        file.getChannel().force(false);
+        commits++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Re-applies every record of a journal, e.g. at startup or after a journal failure, with the ticket numbers and
+     * booking times it recorded. The shows must already be set up, as only bookings and cancellations are journalled.
+     * A last record without a line break was cut off while being written, so it was never committed and is skipped.
+     *
+     * @param path The path of the journal
+     * @param buyerCommandHandler The handler to apply the records to
+     * @return The number of records applied
+     * @throws IOException if the journal cannot be read or has a record that cannot be applied
+     */
+    public static int replay(Path path, BuyerCommandHandler buyerCommandHandler) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        boolean isLastRecordComplete = endsWithLineBreak(path);
+        int applied = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String record = reader.readLine();
+            while (record != null) {
+                String next = reader.readLine();
+                if (next != null || isLastRecordComplete) {
+                    apply(record, buyerCommandHandler);
+                    applied++;
+                }
+                record = next;
+            }
+        }
+        return applied;
+    }
+
+    private static void apply(String record, BuyerCommandHandler buyerCommandHandler) throws IOException {
+        String[] fields = record.split(" ");
+        try {
+            switch (fields[0]) {
+                case "Book":
+                    buyerCommandHandler.book(Integer.parseInt(fields[1]), fields[2], fields[3],
+                            UUID.fromString(fields[4]), Long.parseLong(fields[5]));
+                    break;
+                case "Cancel":
+                    // Waitlist bookings made by the cancellation follow it as their own records
+                    buyerCommandHandler.forceCancel(UUID.fromString(fields[1]));
+                    break;
+                default:
+                    throw new IOException("Unknown journal record: " + record);
+            }
+        } catch (NoSuchShowException | NoSuchTicketException | BookingException | RuntimeException e) {
+            throw new IOException("Failed to replay journal record: " + record, e);
+        }
+    }
+
+    private static boolean endsWithLineBreak(Path path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            if (file.length() == 0) {
+                return true;
+            }
+            file.seek(file.length() - 1);
+            return file.read() == '\n';
+        }
+    }
+
+    /**
+     * Returns the record for a booking, e.g. Book 1 98244587 A1,A2,A3 [UUID] [booking time]
+     *
+     * @param ticket The booked ticket
+     * @return The record of the booking
+     */
+    public static String bookRecord(Ticket ticket) {
+        StringJoiner seats = new StringJoiner(",");
+        for (Seat seat : ticket.getSeats()) {
+            seats.add(seat.getSeatNumber());
+        }
+        return "Book " + ticket.getShow().getNumber() + " " + ticket.getPhoneNumber() + " " + seats + " " +
+                ticket.getTicketNumber() + " " + ticket.getBookingTime();
+    }
+
+    /**
+     * Returns the record for a cancellation, e.g. Cancel [UUID] 98244587
+     *
+     * @param ticket The cancelled ticket
+     * @return The record of the cancellation
+     */
+    public static String cancelRecord(Ticket ticket) {
+        return "Cancel " + ticket.getTicketNumber() + " " + ticket.getPhoneNumber();
+    }
+
+    /**
+     * Returns the records for a cancellation followed by the bookings made for waitlisted buyers from its seats
+     *
+     * @param cancellation The cancellation
+     * @return The records of the cancellation, in the order they should be applied
+     */
+    public static List<String> cancellationRecords(Cancellation cancellation) {
+        List<String> records = new ArrayList<>(1 + cancellation.getWaitlistBookings().size());
+        records.add(cancelRecord(cancellation.getTicket()));
+        for (Ticket ticket : cancellation.getWaitlistBookings()) {
+            records.add(bookRecord(ticket));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,137 @@
+package utility;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Flight Recorder event for a single booking operation, e.g. a Book or a View, with its duration.
+ * Nothing is measured unless a recording has the event enabled.
+ *
+ * Allocation profiling is opt-in with -Dshowbooking.recordAllocations=true, as reading the allocated bytes of the
+ * thread costs more than the rest of the event.
+ */
+@Name("showbooking.BookingOperation")
+@Label("Booking Operation")
+@Category("Show Booking")
+@StackTrace(false)
+public class BookingOperationEvent extends Event {
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+    private static volatile boolean recordAllocations;
+
+    static {
+        setRecordAllocations(Boolean.getBoolean("showbooking.recordAllocations"));
+    }
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Show Number")
+    private int showNumber;
+
+    @Label("Seat Count")
+    @Description("Number of seats booked, cancelled or returned by the operation")
+    private int seatCount;
+
+    @Label("Tickets Scanned")
+    @Description("Number of tickets the operation looked at")
+    private int ticketsScanned;
+
+    @Label("Outcome")
+    @Description("Success, or the simple name of the exception thrown")
+    private String outcome = "Success";
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the thread during the operation, 0 unless allocation recording is on")
+    @DataAmount
+    private long allocatedBytes;
+
+    private long allocatedBytesAtStart;
+
+    /**
+     * Creates the event of an operation and starts timing it if the event is enabled
+     *
+     * @param operation The name of the operation, e.g. Book
+     * @param showNumber The show number of the operation
+     */
+    public BookingOperationEvent(String operation, int showNumber) {
+        this.operation = operation;
+        this.showNumber = showNumber;
+        if (this.isEnabled()) {
+            if (recordAllocations && THREADS != null) {
+                allocatedBytesAtStart = THREADS.getCurrentThreadAllocatedBytes();
+            }
+            this.begin();
+        }
+    }
+
+    public static boolean isRecordingAllocations() {
+        return recordAllocations;
+    }
+
+    /**
+     * Turns allocation profiling on or off. Turning it on enables allocation measurement for the whole JVM, so it is
+     * only done when asked for
+     *
+     * @param recordAllocations The boolean value whether to record the allocated bytes of each operation
+     */
+    public static void setRecordAllocations(boolean recordAllocations) {
+        if (recordAllocations && THREADS != null && !THREADS.isThreadAllocatedMemoryEnabled()) {
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        }
+        BookingOperationEvent.recordAllocations = recordAllocations;
+    }
+
+    public void setShowNumber(int showNumber) {
+        this.showNumber = showNumber;
+    }
+
+    public void setSeatCount(int seatCount) {
+        this.seatCount = seatCount;
+    }
+
+    public void setTicketsScanned(int ticketsScanned) {
+        this.ticketsScanned = ticketsScanned;
+    }
+
+    /**
+     * Records that the operation failed
+     *
+     * @param e The exception thrown by the operation
+     */
+    public void setFailure(Exception e) {
+        this.outcome = e.getClass().getSimpleName();
+    }
+
+    /**
+     * Stops timing the operation and commits the event if it is enabled and above its threshold
+     */
+    public void finish() {
+        this.end();
+        if (!this.shouldCommit()) {
+            return;
+        }
+        if (recordAllocations && THREADS != null) {
+            allocatedBytes = THREADS.getCurrentThreadAllocatedBytes() - allocatedBytesAtStart;
+        }
+        this.commit();
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        // Only HotSpot-compatible VMs expose the allocated bytes of a thread
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (threads.isThreadAllocatedMemorySupported()) {
+                return threads;
+            }
+        }
+        return null;
+    }
+}
@@ -4,19 +4,53 @@ import exceptions.BookingException;
 import exceptions.CancelBookingException;
 import exceptions.NoSuchShowException;
 import exceptions.NoSuchTicketException;
+import objects.Cancellation;
 import objects.Seat;
 import objects.Show;
 import objects.Ticket;
+import objects.WaitlistRequest;
 
+import java.io.PrintStream;
+import java.time.Clock;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class BuyerCommandHandler {
-    private final HashMap<Integer, Show> shows;
+    private final ShowRepository shows;
     private final HashMap<UUID, Ticket> tickets;
+    private final PhoneNumberIndex bookingsByPhone;
+    private final CancellationExpiryIndex cancellationExpiries = new CancellationExpiryIndex();
+    private final Clock clock;
+    private final ContiguousSeatIndex showsBySeatsTogether;
+    private final HashMap<Integer, Waitlist> waitlists = new HashMap<>();
 
     public BuyerCommandHandler(HashMap<Integer, Show> shows, HashMap<UUID, Ticket> tickets) {
+        this(shows, tickets, new PhoneNumberIndex());
+    }
+
+    public BuyerCommandHandler(HashMap<Integer, Show> shows, HashMap<UUID, Ticket> tickets,
+                               PhoneNumberIndex bookingsByPhone) {
+        this(shows, tickets, bookingsByPhone, Clock.systemUTC());
+    }
+
+    public BuyerCommandHandler(HashMap<Integer, Show> shows, HashMap<UUID, Ticket> tickets,
+                               PhoneNumberIndex bookingsByPhone, Clock clock) {
+        this(shows, tickets, bookingsByPhone, clock, new ContiguousSeatIndex());
+    }
+
+    public BuyerCommandHandler(HashMap<Integer, Show> shows, HashMap<UUID, Ticket> tickets,
+                               PhoneNumberIndex bookingsByPhone, Clock clock,
+                               ContiguousSeatIndex showsBySeatsTogether) {
+        this(new InMemoryShowRepository(shows), tickets, bookingsByPhone, clock, showsBySeatsTogether);
+    }
+
+    public BuyerCommandHandler(ShowRepository shows, HashMap<UUID, Ticket> tickets, PhoneNumberIndex bookingsByPhone,
+                               Clock clock, ContiguousSeatIndex showsBySeatsTogether) {
         this.shows = shows;
         this.tickets = tickets;
+        this.bookingsByPhone = bookingsByPhone;
+        this.clock = clock;
+        this.showsBySeatsTogether = showsBySeatsTogether;
     }
 
     /**
@@ -27,16 +61,38 @@ public class BuyerCommandHandler {
      * @throws NoSuchShowException if the show does not exist
      */
     public HashMap<String, Seat> retrieveAndPrintAvailability(int showNumber) throws NoSuchShowException {
-        Show show = shows.get(showNumber);
-        if (show == null) {
-            throw new NoSuchShowException();
+        return this.retrieveAndPrintAvailability(showNumber, System.out);
+    }
+
+    /**
+     * Views and prints the available seats for a given show
+     *
+     * @param showNumber The show number
+     * @param out The stream to print to
+     * @return A hashmap of the available seats
+     * @throws NoSuchShowException if the show does not exist
+     */
+    public HashMap<String, Seat> retrieveAndPrintAvailability(int showNumber, PrintStream out) throws NoSuchShowException {
+        BookingOperationEvent event = new BookingOperationEvent("Availability", showNumber);
+        HashMap<String, Seat> availableSeats;
+        try {
+            Show show = shows.get(showNumber);
+            if (show == null) {
+                throw new NoSuchShowException();
+            }
+            availableSeats = show.getAvailableSeats();
+            event.setSeatCount(availableSeats.size());
+        } catch (NoSuchShowException e) {
+            event.setFailure(e);
+            throw e;
+        } finally {
+            event.finish();
         }
-        HashMap<String, Seat> availableSeats = show.getAvailableSeats();
-        System.out.println("Available seats: ");
-        System.out.println("----------------------------------");
-        availableSeats.values().forEach(s -> System.out.print(s.getSeatNumber() + " "));
-        System.out.println(" ");
-        System.out.println("----------------------------------");
+        out.println("Available seats: ");
+        out.println("----------------------------------");
+        availableSeats.values().forEach(s -> out.print(s.getSeatNumber() + " "));
+        out.println(" ");
+        out.println("----------------------------------");
         return availableSeats;
     }
 
@@ -51,36 +107,111 @@ public class BuyerCommandHandler {
      * @throws BookingException if the booking is invalid
      */
     public Ticket book(int showNumber, String phoneNumber, String seats) throws NoSuchShowException, BookingException {
-        Show show = shows.get(showNumber);
-        if (show == null) {
-            throw new NoSuchShowException();
-        }
-        if (!phoneNumber.matches("\\d+")) {
-            throw new BookingException("Invalid phoneNumber.");
-        }
-        // Check if phone number has booked before
-        if (show.hasBookedBefore(phoneNumber)) {
-            // Can also return booking under the phoneNumber instead of throwing exception
-            throw new BookingException("Phone number: " + phoneNumber + " already has an existing booking.");
+        return this.book(showNumber, phoneNumber, seats, UUID.randomUUID(), clock.millis());
+    }
+
+    /**
+     * Books a ticket for a given show with a given ticket number and booking time, e.g. to replay a booking
+     *
+     * @param showNumber The show number for the booking
+     * @param phoneNumber The phone number of the buyer
+     * @param seats The seats to book
+     * @param ticketNumber The ticket number to assign to the booking
+     * @param bookingTime The booking time in epoch millis
+     * @return The newly created ticket
+     * @throws NoSuchShowException if the show does not exist
+     * @throws BookingException if the booking is invalid
+     */
+    public Ticket book(int showNumber, String phoneNumber, String seats, UUID ticketNumber, long bookingTime)
+            throws NoSuchShowException, BookingException {
+        return this.book(showNumber, shows.get(showNumber), phoneNumber, seats, ticketNumber, bookingTime);
+    }
+
+    /**
+     * Books a ticket for a show that has already been looked up
+     *
+     * @param showNumber The show number for the booking
+     * @param show The show, or null if it does not exist
+     * @param phoneNumber The phone number of the buyer
+     * @param seats The seats to book
+     * @param ticketNumber The ticket number to assign to the booking
+     * @param bookingTime The booking time in epoch millis
+     * @return The newly created ticket
+     * @throws NoSuchShowException if the show does not exist
+     * @throws BookingException if the booking is invalid
+     */
+    private Ticket book(int showNumber, Show show, String phoneNumber, String seats, UUID ticketNumber,
+                        long bookingTime) throws NoSuchShowException, BookingException {
+        BookingOperationEvent event = new BookingOperationEvent("Book", showNumber);
+        try {
+            if (show == null) {
+                throw new NoSuchShowException();
+            }
+            // Every existing ticket of the show is checked for the phone number
+            event.setTicketsScanned(show.getTickets().size());
+            Ticket ticket = this.placeBooking(show, phoneNumber, seats, ticketNumber, bookingTime);
+            event.setSeatCount(ticket.getSeatIndexes().length);
+            return ticket;
+        } catch (NoSuchShowException | BookingException e) {
+            event.setFailure(e);
+            throw e;
+        } finally {
+            event.finish();
         }
-        String[] seatArray = seats.split(",");
-        // Validate if seat is available for booking
-        HashMap<String, Seat> availableSeats = show.getAvailableSeats();
-        ArrayList<Seat> seatsForBooking = new ArrayList<>();
-        for (String value : seatArray) {
-            if (!availableSeats.containsKey(value)) {
-                throw new BookingException("Seat: " + value + " is not available.");
+    }
+
+    private Ticket placeBooking(Show show, String phoneNumber, String seats, UUID ticketNumber, long bookingTime)
+            throws BookingException {
+        this.finalizeExpiredTickets(bookingTime);
+        long phoneKey = parsePhoneNumber(phoneNumber);
+        // Check and occupy the seats in one step, so that concurrent bookings of the show cannot take the same seat
+        synchronized (show) {
+            if (show.isClosed()) {
+                throw new BookingException("Show " + show.getNumber() + " is closed.");
+            }
+            // Check if phone number has booked before
+            if (show.hasBookedBefore(phoneNumber)) {
+                // Can also return booking under the phoneNumber instead of throwing exception
+                throw new BookingException("Phone number: " + phoneNumber + " already has an existing booking.");
+            }
+            String[] seatArray = seats.split(",");
+            // Validate if seat is available for booking, including seats repeated within the same booking
+            short[] seatsForBooking = new short[seatArray.length];
+            for (int i = 0; i < seatArray.length; i++) {
+                int seatIndex = show.seatIndexOf(seatArray[i]);
+                if (seatIndex < 0 || show.isOccupied(seatIndex) || indexOf(seatsForBooking, i, seatIndex) >= 0) {
+                    throw new BookingException("Seat: " + seatArray[i] + " is not available.");
+                }
+                seatsForBooking[i] = (short) seatIndex;
+            }
+            // Create ticket
+            Ticket ticket = new Ticket(phoneNumber, ticketNumber, seatsForBooking, bookingTime, show);
+            // The window counts whole elapsed minutes, so the booking stays cancellable until the next minute ends
+            ticket.setCancellationDeadline(bookingTime + (show.getCancellationWindow() + 1) * 60 * 1000L);
+            // Bookings for different shows may run in parallel, so guard the indexes shared by all shows
+            synchronized (tickets) {
+                tickets.put(ticketNumber, ticket);
+                cancellationExpiries.add(ticket);
+                bookingsByPhone.add(phoneKey, ticket);
             }
-            seatsForBooking.add(availableSeats.get(value));
+            // Update seat to occupied
+            show.addBooking(ticket);
+            showsBySeatsTogether.update(show);
+            return ticket;
         }
-        // Create ticket
-        UUID ticketNumber = UUID.randomUUID();
-        Ticket ticket = new Ticket(phoneNumber, ticketNumber, seatsForBooking, new Date(), show);
-        tickets.put(ticketNumber, ticket);
-        show.getTickets().add(ticket);
-        // Update seat to occupied
-        seatsForBooking.forEach(s -> s.setOccupied(true));
-        return ticket;
+    }
+
+    /**
+     * Cancels a booking for a given ticket number at the current time
+     *
+     * @param ticketNumber The ticket number for the booking
+     * @param phoneNumber The phone number of the buyer
+     * @return The cancelled ticket and the bookings made for waitlisted buyers from its seats
+     * @throws NoSuchTicketException is the ticket does not exist
+     */
+    public Cancellation cancel(UUID ticketNumber, String phoneNumber) throws NoSuchTicketException,
+            CancelBookingException, BookingException {
+        return this.cancel(ticketNumber, phoneNumber, clock.millis());
     }
 
     /**
@@ -88,28 +219,383 @@ public class BuyerCommandHandler {
      *
      * @param ticketNumber The ticket number for the booking
      * @param phoneNumber The phone number of the buyer
-     * @return The cancelled ticket
+     * @param currentDate The time of the cancellation
+     * @return The cancelled ticket and the bookings made for waitlisted buyers from its seats
      * @throws NoSuchTicketException is the ticket does not exist
      */
-    public Ticket cancel(UUID ticketNumber, String phoneNumber, Date currentDate) throws NoSuchTicketException,
+    public Cancellation cancel(UUID ticketNumber, String phoneNumber, Date currentDate) throws NoSuchTicketException,
             CancelBookingException, BookingException {
-        Ticket ticket = tickets.get(ticketNumber);
+        return this.cancel(ticketNumber, phoneNumber, currentDate.getTime());
+    }
+
+    /**
+     * Cancels a booking for a given ticket number
+     *
+     * @param ticketNumber The ticket number for the booking
+     * @param phoneNumber The phone number of the buyer
+     * @param cancellationTime The time of the cancellation in epoch milliseconds
+     * @return The cancelled ticket and the bookings made for waitlisted buyers from its seats
+     * @throws NoSuchTicketException is the ticket does not exist
+     */
+    public Cancellation cancel(UUID ticketNumber, String phoneNumber, long cancellationTime)
+            throws NoSuchTicketException, CancelBookingException, BookingException {
+        Cancellation cancellation = this.cancelWithoutNotifying(ticketNumber, phoneNumber, cancellationTime);
+        this.notifyWaitlist(cancellation);
+        return cancellation;
+    }
+
+    /**
+     * Cancels a booking for a given ticket number at the current time, leaving the waitlisted buyers that were booked
+     * from its seats to be notified by the caller
+     *
+     * @param ticketNumber The ticket number for the booking
+     * @param phoneNumber The phone number of the buyer
+     * @return The cancelled ticket and the bookings made for waitlisted buyers from its seats
+     * @throws NoSuchTicketException is the ticket does not exist
+     */
+    Cancellation cancelWithoutNotifying(UUID ticketNumber, String phoneNumber) throws NoSuchTicketException,
+            CancelBookingException, BookingException {
+        return this.cancelWithoutNotifying(ticketNumber, phoneNumber, clock.millis());
+    }
+
+    private Cancellation cancelWithoutNotifying(UUID ticketNumber, String phoneNumber, long cancellationTime)
+            throws NoSuchTicketException, CancelBookingException, BookingException {
+        // The show is only known once the ticket is found
+        BookingOperationEvent event = new BookingOperationEvent("Cancel", -1);
+        try {
+            // Finalize by the same time as the window check below, so that the two never disagree
+            this.finalizeExpiredTickets(cancellationTime);
+            Ticket ticket;
+            synchronized (tickets) {
+                ticket = tickets.get(ticketNumber);
+            }
+            if (ticket == null) {
+                // The show may have been evicted from memory, in which case its tickets are final
+                ticket = shows.findStoredTicket(ticketNumber);
+            }
+            if (ticket == null) {
+                throw new NoSuchTicketException();
+            }
+            event.setShowNumber(ticket.getShow().getNumber());
+            event.setTicketsScanned(1);
+            if (!ticket.getPhoneNumber().equals(phoneNumber)) {
+                throw new CancelBookingException("Phone number does not match the one in booking.");
+            }
+            // Reject cancellation if the ticket is final or its cancellation window has passed
+            if (ticket.isFinalized() || cancellationTime >= ticket.getCancellationDeadline()) {
+                throw new CancelBookingException("You cannot cancel your booking as it passed the window of: " +
+                        ticket.getShow().getCancellationWindow() + " minutes");
+            }
+            Cancellation cancellation = this.cancelBooking(ticketNumber);
+            event.setSeatCount(ticket.getSeatIndexes().length);
+            return cancellation;
+        } catch (NoSuchTicketException | CancelBookingException | BookingException e) {
+            event.setFailure(e);
+            throw e;
+        } finally {
+            event.finish();
+        }
+    }
+
+    /**
+     * Cancels a booking without checking the phone number or the cancellation window, e.g. to replay a cancellation
+     * that has already been accepted
+     *
+     * @param ticketNumber The ticket number for the booking
+     * @return The cancelled ticket and the bookings made for waitlisted buyers from its seats
+     * @throws NoSuchTicketException is the ticket does not exist
+     */
+    public Cancellation forceCancel(UUID ticketNumber) throws NoSuchTicketException, BookingException {
+        Cancellation cancellation = this.cancelBooking(ticketNumber);
+        this.notifyWaitlist(cancellation);
+        return cancellation;
+    }
+
+    /**
+     * Notifies the waitlisted buyers that were booked from the seats of a cancellation. Must be called without holding
+     * the show, as the callbacks may take any time or call back into this handler
+     *
+     * @param cancellation The cancellation that freed the seats
+     */
+    public void notifyWaitlist(Cancellation cancellation) {
+        for (int i = 0; i < cancellation.getWaitlistBookings().size(); i++) {
+            Ticket ticket = cancellation.getWaitlistBookings().get(i);
+            try {
+                cancellation.getWaitlistRequests().get(i).getOnAssigned().accept(ticket);
+            } catch (RuntimeException e) {
+                // One failing callback must not keep the other buyers from being notified
+                System.err.println("Waitlist: failed to notify " + ticket.getPhoneNumber() + " of ticket " +
+                        ticket.getTicketNumber() + ": " + e);
+            }
+        }
+    }
+
+    private Cancellation cancelBooking(UUID ticketNumber) throws NoSuchTicketException, BookingException {
+        Ticket ticket;
+        synchronized (tickets) {
+            ticket = tickets.get(ticketNumber);
+        }
         if (ticket == null) {
             throw new NoSuchTicketException();
         }
-        if (!ticket.getPhoneNumber().equals(phoneNumber)) {
-            throw new CancelBookingException("Phone number does not match the one in booking.");
-        }
-        // Reject cancellation if current time - ticket's bookingTime > show's cancellationWindow
         Show show = ticket.getShow();
-        long minutesDiff = (currentDate.getTime() - ticket.getBookingTime().getTime()) / (60 * 1000);
-        if (minutesDiff > show.getCancellationWindow()) {
-            throw new CancelBookingException("You cannot cancel your booking as it passed the window of: " +
-                    show.getCancellationWindow() + " minutes");
-        }
-        // Cancel booking
-        show.cancelBooking(ticketNumber);
-        tickets.remove(ticketNumber);
-        return ticket;
+        List<Ticket> waitlistBookings = new ArrayList<>();
+        List<WaitlistRequest> waitlistRequests = new ArrayList<>();
+        synchronized (show) {
+            synchronized (tickets) {
+                // Another cancellation of the same ticket may have won the race for the show
+                if (tickets.get(ticketNumber) != ticket) {
+                    throw new NoSuchTicketException();
+                }
+                tickets.remove(ticketNumber);
+                bookingsByPhone.remove(Long.parseLong(ticket.getPhoneNumber()), ticket);
+            }
+            // Cancel booking
+            show.cancelBooking(ticketNumber);
+            // Hand the freed seats over before releasing the show, so that they are never offered to other buyers
+            this.assignToWaitlist(show, ticket.getSeatIndexes(), waitlistBookings, waitlistRequests);
+            showsBySeatsTogether.update(show);
+        }
+        return new Cancellation(ticket, waitlistBookings, waitlistRequests);
+    }
+
+    /**
+     * Adds a buyer to the waitlist of a show, to be booked automatically when enough seats are cancelled
+     *
+     * @param showNumber The show number
+     * @param phoneNumber The phone number of the buyer
+     * @param numOfSeats The number of seats needed
+     * @param priority The priority of the request, where higher is served first
+     * @param onAssigned The callback to notify with the new ticket once seats are assigned
+     * @return The newly created waitlist request
+     * @throws NoSuchShowException if the show does not exist
+     * @throws BookingException if the phone number or number of seats is invalid
+     */
+    public WaitlistRequest joinWaitlist(int showNumber, String phoneNumber, int numOfSeats, int priority,
+                                        Consumer<Ticket> onAssigned) throws NoSuchShowException, BookingException {
+        Show show = shows.get(showNumber);
+        if (show == null) {
+            throw new NoSuchShowException();
+        }
+        parsePhoneNumber(phoneNumber);
+        // Holding the show keeps a cancellation of the show from closing it between the checks and the join
+        synchronized (show) {
+            if (show.isClosed()) {
+                throw new BookingException("Show " + showNumber + " is closed.");
+            }
+            if (show.hasBookedBefore(phoneNumber)) {
+                throw new BookingException("Phone number: " + phoneNumber + " already has an existing booking.");
+            }
+            if (numOfSeats < 1 || numOfSeats > show.getSeats().size()) {
+                throw new BookingException("Invalid number of seats: " + numOfSeats);
+            }
+            Waitlist waitlist;
+            synchronized (waitlists) {
+                waitlist = waitlists.computeIfAbsent(showNumber, k -> new Waitlist());
+            }
+            return waitlist.add(phoneNumber, numOfSeats, priority, onAssigned);
+        }
+    }
+
+    /**
+     * Drops the waitlist of a show, e.g. once the show is cancelled
+     *
+     * @param showNumber The show number
+     * @return The number of requests dropped
+     */
+    public int dropWaitlist(int showNumber) {
+        synchronized (waitlists) {
+            Waitlist waitlist = waitlists.remove(showNumber);
+            return waitlist == null ? 0 : waitlist.size();
+        }
+    }
+
+    /**
+     * Returns the number of buyers waiting for seats of a show
+     *
+     * @param showNumber The show number
+     * @return The number of requests in the waitlist of the show
+     */
+    public int getWaitlistSize(int showNumber) {
+        synchronized (waitlists) {
+            Waitlist waitlist = waitlists.get(showNumber);
+            return waitlist == null ? 0 : waitlist.size();
+        }
+    }
+
+    /**
+     * Marks every live ticket whose cancellation window has closed as final
+     *
+     * @return The number of tickets finalized
+     */
+    public int finalizeExpiredTickets() {
+        return this.finalizeExpiredTickets(clock.millis());
+    }
+
+    /**
+     * Marks every live ticket whose cancellation window has closed by a given time as final
+     *
+     * @param currentTime The time to check the windows against in epoch milliseconds
+     * @return The number of tickets finalized
+     */
+    public int finalizeExpiredTickets(long currentTime) {
+        int finalized = 0;
+        synchronized (tickets) {
+            for (Ticket ticket : cancellationExpiries.pollExpired(currentTime)) {
+                // Cancelled tickets stay in the index until their window closes and are skipped here
+                if (tickets.get(ticket.getTicketNumber()) == ticket) {
+                    ticket.setFinalized(true);
+                    finalized++;
+                }
+            }
+        }
+        return finalized;
+    }
+
+    /**
+     * Views and prints the live bookings of a buyer across all shows
+     *
+     * @param phoneNumber The phone number of the buyer
+     * @return The tickets booked under the phone number
+     * @throws BookingException if the phone number is invalid
+     */
+    public List<Ticket> retrieveAndPrintBookings(String phoneNumber) throws BookingException {
+        return this.retrieveAndPrintBookings(phoneNumber, System.out);
+    }
+
+    /**
+     * Views and prints the live bookings of a buyer across all shows
+     *
+     * @param phoneNumber The phone number of the buyer
+     * @param out The stream to print to
+     * @return The tickets booked under the phone number
+     * @throws BookingException if the phone number is invalid
+     */
+    public List<Ticket> retrieveAndPrintBookings(String phoneNumber, PrintStream out) throws BookingException {
+        long key = parsePhoneNumber(phoneNumber);
+        List<Ticket> bookings = new ArrayList<>();
+        synchronized (tickets) {
+            // Numbers that only differ by leading zeros share a key, so match on the original string
+            for (Ticket ticket : bookingsByPhone.get(key)) {
+                if (ticket.getPhoneNumber().equals(phoneNumber)) {
+                    bookings.add(ticket);
+                }
+            }
+        }
+        for (Ticket ticket : shows.findStoredBookings(key)) {
+            if (ticket.getPhoneNumber().equals(phoneNumber)) {
+                bookings.add(ticket);
+            }
+        }
+        out.println("Bookings for " + phoneNumber + ": ");
+        if (bookings.isEmpty()) {
+            out.println("No bookings yet.");
+        }
+        for (Ticket ticket : bookings) {
+            out.println("----------------------------------");
+            out.println("Show number: " + ticket.getShow().getNumber());
+            out.println("Ticket number: " + ticket.getTicketNumber());
+            out.println("Seats booked: ");
+            for (Seat seat : ticket.getSeats()) {
+                out.print(seat.getSeatNumber() + " ");
+            }
+            out.println(" ");
+        }
+        out.println("----------------------------------");
+        return bookings;
+    }
+
+    /**
+     * Books freed seats for the first waitlisted requests that fit, without notifying them yet
+     *
+     * @param show The show of the freed seats
+     * @param freedSeatIndexes The indexes of the freed seats
+     * @param bookings The list to add the bookings made for waitlisted buyers to
+     * @param requests The list to add the waitlisted requests that were booked to, in the same order
+     */
+    private void assignToWaitlist(Show show, short[] freedSeatIndexes, List<Ticket> bookings,
+                                  List<WaitlistRequest> requests) {
+        Waitlist waitlist;
+        synchronized (waitlists) {
+            waitlist = waitlists.get(show.getNumber());
+        }
+        int assigned = 0;
+        while (waitlist != null && assigned < freedSeatIndexes.length) {
+            WaitlistRequest request = waitlist.pollFirstFitting(freedSeatIndexes.length - assigned);
+            if (request == null) {
+                break;
+            }
+            StringJoiner seats = new StringJoiner(",");
+            for (int i = assigned; i < assigned + request.getNumOfSeats(); i++) {
+                seats.add(show.getSeats().get(freedSeatIndexes[i]).getSeatNumber());
+            }
+            Ticket ticket;
+            try {
+                // The show is already held, so it is not looked up again
+                ticket = this.book(show.getNumber(), show, request.getPhoneNumber(), seats.toString(),
+                        UUID.randomUUID(), clock.millis());
+            } catch (NoSuchShowException | BookingException e) {
+                // The buyer has booked the show in the meantime, so the request is dropped
+                continue;
+            }
+            assigned += request.getNumOfSeats();
+            bookings.add(ticket);
+            requests.add(request);
+        }
+    }
+
+    private static int indexOf(short[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Views and prints the shows that have a given number of free seats next to each other in a row
+     *
+     * @param numOfSeats The number of seats together
+     * @return The matching show numbers
+     */
+    public List<Integer> retrieveAndPrintShowsWithSeatsTogether(int numOfSeats) {
+        return this.retrieveAndPrintShowsWithSeatsTogether(numOfSeats, System.out);
+    }
+
+    /**
+     * Views and prints the shows that have a given number of free seats next to each other in a row
+     *
+     * @param numOfSeats The number of seats together
+     * @param out The stream to print to
+     * @return The matching show numbers
+     */
+    public List<Integer> retrieveAndPrintShowsWithSeatsTogether(int numOfSeats, PrintStream out) {
+        List<Integer> showNumbers = showsBySeatsTogether.find(numOfSeats);
+        out.println("Shows with " + numOfSeats + " seats together: ");
+        out.println("----------------------------------");
+        if (showNumbers.isEmpty()) {
+            out.println("No shows found.");
+        } else {
+            showNumbers.forEach(n -> out.print(n + " "));
+            out.println(" ");
+        }
+        out.println("----------------------------------");
+        return showNumbers;
+    }
+
+    /**
+     * Validates a phone number and converts it to its numeric form
+     *
+     * @param phoneNumber The phone number to validate
+     * @return The phone number as a long
+     * @throws BookingException if the phone number is not made up of 1 to 15 digits
+     */
+    private static long parsePhoneNumber(String phoneNumber) throws BookingException {
+        // 15 digits is the longest international phone number and always fits in a long
+        if (!phoneNumber.matches("\\d{1,15}")) {
+            throw new BookingException("Invalid phoneNumber.");
+        }
+        return Long.parseLong(phoneNumber);
     }
 }
@@ -0,0 +1,49 @@
+package utility;
+
+import objects.Ticket;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Orders tickets by the time their cancellation window closes, so that closed windows are found without a scan.
+ * Cancelled tickets are not removed eagerly and are expected to be skipped by the caller.
+ */
+public class CancellationExpiryIndex {
+    private final PriorityQueue<Ticket> pending =
+            new PriorityQueue<>(Comparator.comparingLong(Ticket::getCancellationDeadline));
+
+    /**
+     * Adds a ticket whose cancellation window is still open
+     *
+     * @param ticket The ticket to add
+     */
+    public void add(Ticket ticket) {
+        pending.add(ticket);
+    }
+
+    /**
+     * Removes and returns every ticket whose cancellation window has closed
+     *
+     * @param currentTime The current time in epoch millis
+     * @return The tickets that can no longer be cancelled, earliest first
+     */
+    public List<Ticket> pollExpired(long currentTime) {
+        List<Ticket> expired = new ArrayList<>();
+        while (!pending.isEmpty() && pending.peek().getCancellationDeadline() <= currentTime) {
+            expired.add(pending.poll());
+        }
+        return expired;
+    }
+
+    /**
+     * Returns the number of tickets waiting for their window to close
+     *
+     * @return The number of tickets in the index
+     */
+    public int size() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,209 @@
+package utility;
+
+import objects.Cancellation;
+import objects.Refund;
+import objects.Show;
+import objects.Ticket;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+public class CommandProcessor {
+    private final ShowRepository shows;
+    private final AdminCommandHandler adminCommandHandler;
+    private final BuyerCommandHandler buyerCommandHandler;
+    // Receives every applied mutation when this process is a replication leader, otherwise null
+    private final ReplicationLeader replicationLeader;
+
+    public CommandProcessor(HashMap<Integer, Show> shows, AdminCommandHandler adminCommandHandler,
+                            BuyerCommandHandler buyerCommandHandler) {
+        this(shows, adminCommandHandler, buyerCommandHandler, null);
+    }
+
+    public CommandProcessor(HashMap<Integer, Show> shows, AdminCommandHandler adminCommandHandler,
+                            BuyerCommandHandler buyerCommandHandler, ReplicationLeader replicationLeader) {
+        this(new InMemoryShowRepository(shows), adminCommandHandler, buyerCommandHandler, replicationLeader);
+    }
+
+    public CommandProcessor(ShowRepository shows, AdminCommandHandler adminCommandHandler,
+                            BuyerCommandHandler buyerCommandHandler, ReplicationLeader replicationLeader) {
+        this.shows = shows;
+        this.adminCommandHandler = adminCommandHandler;
+        this.buyerCommandHandler = buyerCommandHandler;
+        this.replicationLeader = replicationLeader;
+    }
+
+    /**
+     * Executes a single command line and prints its result
+     *
+     * @param command The command line, e.g. Book 1 98244587 A1,A2,A3
+     * @param out The stream to print the result to
+     */
+    public void execute(String command, PrintStream out) {
+        if (replicationLeader == null) {
+            this.apply(command, out);
+            return;
+        }
+        // A snapshot for a follower must not see a mutation before it is published
+        replicationLeader.getMutationLock().lock();
+        try {
+            this.apply(command, out);
+        } finally {
+            replicationLeader.getMutationLock().unlock();
+        }
+    }
+
+    private void apply(String command, PrintStream out) {
+        try {
+            String[] commandline = command.split(" ");
+            switch (commandline[0]) {
+                // Admin commands
+                case "Setup": {
+                    if (commandline.length != 5) {
+                        out.println("Invalid params for Setup command");
+                        break;
+                    }
+                    // Setup 1 5 10 2
+                    Show show = adminCommandHandler.setup(Integer.parseInt(commandline[1]),
+                            Integer.parseInt(commandline[2]), Integer.parseInt(commandline[3]),
+                            Integer.parseInt(commandline[4]));
+                    this.publish("Setup " + show.getNumber() + " " + show.getNumOfRows() + " " +
+                            show.getSeatsPerRow() + " " + show.getCancellationWindow());
+                    out.println("Show " + show.getNumber() + " set up successfully");
+                    break;
+                }
+                case "View": {
+                    if (commandline.length != 2) {
+                        out.println("Invalid params for View command");
+                        break;
+                    }
+                    // View 1
+                    adminCommandHandler.viewAndPrintDetails(Integer.parseInt(commandline[1]), out);
+                    break;
+                }
+                case "Dashboard": {
+                    if (commandline.length > 2) {
+                        out.println("Invalid params for Dashboard command");
+                        break;
+                    }
+                    // Dashboard or Dashboard 5
+                    int limit = commandline.length == 2 ? Integer.parseInt(commandline[1]) : shows.size();
+                    adminCommandHandler.viewAndPrintDashboard(limit, out);
+                    break;
+                }
+                case "CancelShow": {
+                    if (commandline.length != 2) {
+                        out.println("Invalid params for CancelShow command");
+                        break;
+                    }
+                    // CancelShow 1
+                    List<Refund> refunds = adminCommandHandler.cancelShow(Integer.parseInt(commandline[1]));
+                    buyerCommandHandler.dropWaitlist(Integer.parseInt(commandline[1]));
+                    this.publish("CancelShow " + Integer.parseInt(commandline[1]));
+                    out.println("Show " + commandline[1] + " cancelled, " + refunds.size() +
+                            " tickets refunded");
+                    break;
+                }
+                case "CloseShow": {
+                    if (commandline.length != 2) {
+                        out.println("Invalid params for CloseShow command");
+                        break;
+                    }
+                    // CloseShow 1
+                    adminCommandHandler.closeShow(Integer.parseInt(commandline[1]));
+                    buyerCommandHandler.dropWaitlist(Integer.parseInt(commandline[1]));
+                    this.publish("CloseShow " + Integer.parseInt(commandline[1]));
+                    out.println("Show " + commandline[1] + " closed");
+                    break;
+                }
+                // Buyer commands
+                case "Availability": {
+                    if (commandline.length != 2) {
+                        out.println("Invalid params for Availability command");
+                        break;
+                    }
+                    // Availability 1
+                    buyerCommandHandler.retrieveAndPrintAvailability(Integer.parseInt(commandline[1]), out);
+                    break;
+                }
+                case "Book": {
+                    if (commandline.length != 4) {
+                        out.println("Invalid params for Book command");
+                        break;
+                    }
+                    // Book 1 98244587 A1,A2,A3
+                    Ticket ticket = buyerCommandHandler.book(Integer.parseInt(commandline[1]), commandline[2],
+                            commandline[3]);
+                    this.publish(BookingJournal.bookRecord(ticket));
+                    out.println("Your ticket number is: " + ticket.getTicketNumber());
+                    break;
+                }
+                case "Cancel": {
+                    if (commandline.length != 3) {
+                        out.println("Invalid params for Cancel command");
+                        break;
+                    }
+                    // Cancel <UUID> 98244587
+                    Cancellation cancellation = buyerCommandHandler.cancel(UUID.fromString(commandline[1]),
+                            commandline[2]);
+                    for (String record : BookingJournal.cancellationRecords(cancellation)) {
+                        this.publish(record);
+                    }
+                    out.println("Booking cancelled for ticket number: " + cancellation.getTicket().getTicketNumber());
+                    for (Ticket ticket : cancellation.getWaitlistBookings()) {
+                        out.println("Waitlisted booking for " + ticket.getPhoneNumber() +
+                                " confirmed, ticket number: " + ticket.getTicketNumber());
+                    }
+                    break;
+                }
+                case "Waitlist": {
+                    if (commandline.length != 4 && commandline.length != 5) {
+                        out.println("Invalid params for Waitlist command");
+                        break;
+                    }
+                    // Waitlist 1 98244587 3 or Waitlist 1 98244587 3 10
+                    int priority = commandline.length == 5 ? Integer.parseInt(commandline[4]) : 0;
+                    buyerCommandHandler.joinWaitlist(Integer.parseInt(commandline[1]), commandline[2],
+                            Integer.parseInt(commandline[3]), priority, ticket -> {
+                                // Reported by the cancellation that freed the seats
+                            });
+                    out.println("Added to the waitlist for show " + commandline[1]);
+                    break;
+                }
+                case "MyBookings": {
+                    if (commandline.length != 2) {
+                        out.println("Invalid params for MyBookings command");
+                        break;
+                    }
+                    // MyBookings 98244587
+                    buyerCommandHandler.retrieveAndPrintBookings(commandline[1], out);
+                    break;
+                }
+                case "FindSeats": {
+                    // Closed shows are indexed under 0 seats together, so at least 1 seat must be asked for
+                    if (commandline.length != 2 || Integer.parseInt(commandline[1]) < 1) {
+                        out.println("Invalid params for FindSeats command");
+                        break;
+                    }
+                    // FindSeats 6
+                    buyerCommandHandler.retrieveAndPrintShowsWithSeatsTogether(Integer.parseInt(commandline[1]), out);
+                    break;
+                }
+                default:
+                    out.println("Unknown command");
+                    break;
+            }
+        }
+        catch (Exception e) {
+            out.println(e);
+        }
+    }
+
+    private void publish(String record) {
+        if (replicationLeader != null) {
+            replicationLeader.publish(record);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package utility;
+
+import objects.Show;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Index of shows by their longest run of free seats next to each other, so that the shows with a given number of
+ * seats together are found without looking at the other shows.
+ */
+public class ContiguousSeatIndex {
+    private final TreeMap<Integer, LinkedHashSet<Integer>> showsByLongestFreeRun = new TreeMap<>();
+    private final HashMap<Integer, Integer> longestFreeRunByShow = new HashMap<>();
+
+    /**
+     * Indexes a show under its current longest run of free seats
+     *
+     * @param show The show that was set up or whose seats changed
+     */
+    public synchronized void update(Show show) {
+        // A closed show has no seats to offer
+        int longestFreeRun = show.isClosed() ? 0 : show.getLongestFreeRun();
+        Integer previous = longestFreeRunByShow.put(show.getNumber(), longestFreeRun);
+        if (previous != null) {
+            if (previous == longestFreeRun) {
+                return;
+            }
+            LinkedHashSet<Integer> shows = showsByLongestFreeRun.get(previous);
+            shows.remove(show.getNumber());
+            if (shows.isEmpty()) {
+                showsByLongestFreeRun.remove(previous);
+            }
+        }
+        showsByLongestFreeRun.computeIfAbsent(longestFreeRun, k -> new LinkedHashSet<>()).add(show.getNumber());
+    }
+
+    /**
+     * Returns the shows that have a given number of free seats next to each other in a row
+     *
+     * @param numOfSeats The number of seats together
+     * @return The matching show numbers
+     */
+    public synchronized List<Integer> find(int numOfSeats) {
+        List<Integer> matches = new ArrayList<>();
+        for (LinkedHashSet<Integer> shows : showsByLongestFreeRun.tailMap(numOfSeats).values()) {
+            matches.addAll(shows);
+        }
+        return matches;
+    }
+}
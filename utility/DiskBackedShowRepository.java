@@ -0,0 +1,375 @@
+package utility;
+
+import objects.Show;
+import objects.ShowStats;
+import objects.Ticket;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Repository that keeps every open show in memory and at most a given number of closed shows, evicting the least
+ * recently used closed shows to disk whenever a show is closed or loaded back. A closed show has been cancelled or has
+ * run, so it takes no more bookings and its tickets can no longer be cancelled, and an evicted show never changes.
+ *
+ * The tickets of an evicted show are removed from the tickets map and the phone number index. Lookups by ticket or
+ * phone number go through index files on disk instead, which are split into buckets by hash so that a lookup only
+ * reads one bucket. Only the counters of each evicted show stay in memory, for the dashboard.
+ */
+public class DiskBackedShowRepository implements ShowRepository {
+    private static final int INDEX_BUCKETS = 256;
+    // Ticket number and show number
+    private static final int TICKET_INDEX_ENTRY_SIZE = 20;
+    // Phone number and show number
+    private static final int PHONE_INDEX_ENTRY_SIZE = 12;
+
+    private final int capacity;
+    private final Path directory;
+    private final HashMap<UUID, Ticket> tickets;
+    private final PhoneNumberIndex bookingsByPhone;
+    private final HashMap<Integer, Show> openShows = new HashMap<>();
+    // Access order, so that iteration starts from the least recently used show
+    private final LinkedHashMap<Integer, Show> closedShows = new LinkedHashMap<>(16, 0.75f, true);
+    private final HashMap<Integer, ShowStats> storedShows = new HashMap<>();
+    // Shows whose tickets are in the index files. A closed show never gains tickets, so it is only indexed once
+    private final HashSet<Integer> indexedShows = new HashSet<>();
+
+    /**
+     * Creates an empty repository
+     *
+     * @param capacity The number of closed shows to keep in memory
+     * @param directory The directory to store evicted shows in
+     * @param tickets The tickets map to remove the tickets of evicted shows from
+     * @param bookingsByPhone The phone number index to remove the tickets of evicted shows from
+     */
+    public DiskBackedShowRepository(int capacity, Path directory, HashMap<UUID, Ticket> tickets,
+                                    PhoneNumberIndex bookingsByPhone) {
+        this.capacity = capacity;
+        this.directory = directory;
+        this.tickets = tickets;
+        this.bookingsByPhone = bookingsByPhone;
+    }
+
+    @Override
+    public synchronized Show get(int showNumber) {
+        Show show = openShows.get(showNumber);
+        if (show == null) {
+            show = closedShows.get(showNumber);
+        }
+        if (show != null || !storedShows.containsKey(showNumber)) {
+            return show;
+        }
+        try {
+            show = this.load(showNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load show " + showNumber, e);
+        }
+        closedShows.put(showNumber, show);
+        this.evictColdShows(show);
+        return show;
+    }
+
+    @Override
+    public synchronized boolean contains(int showNumber) {
+        return openShows.containsKey(showNumber) || closedShows.containsKey(showNumber) ||
+                storedShows.containsKey(showNumber);
+    }
+
+    @Override
+    public synchronized void add(Show show) {
+        openShows.put(show.getNumber(), show);
+    }
+
+    @Override
+    public synchronized void markClosed(Show show) {
+        if (openShows.remove(show.getNumber()) != null) {
+            closedShows.put(show.getNumber(), show);
+            this.evictColdShows(null);
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return openShows.size() + closedShows.size() + storedShows.size();
+    }
+
+    public synchronized int getNumOfShowsInMemory() {
+        return openShows.size() + closedShows.size();
+    }
+
+    @Override
+    public synchronized List<Show> getAll() {
+        List<Show> shows = new ArrayList<>(openShows.values());
+        shows.addAll(closedShows.values());
+        for (int showNumber : storedShows.keySet()) {
+            shows.add(this.readStoredShow(showNumber));
+        }
+        return shows;
+    }
+
+    @Override
+    public synchronized List<ShowStats> getAllStats() {
+        List<ShowStats> stats = new ArrayList<>(this.size());
+        for (Show show : openShows.values()) {
+            stats.add(new ShowStats(show));
+        }
+        for (Show show : closedShows.values()) {
+            stats.add(new ShowStats(show));
+        }
+        stats.addAll(storedShows.values());
+        return stats;
+    }
+
+    @Override
+    public synchronized Ticket findStoredTicket(UUID ticketNumber) {
+        Path index = this.ticketIndexOf(ticketNumber);
+        try {
+            if (!Files.exists(index)) {
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+                long numOfEntries = Files.size(index) / TICKET_INDEX_ENTRY_SIZE;
+                for (long i = 0; i < numOfEntries; i++) {
+                    UUID entryTicketNumber = new UUID(in.readLong(), in.readLong());
+                    int showNumber = in.readInt();
+                    // Entries of shows that were loaded back are left in place and skipped
+                    if (!entryTicketNumber.equals(ticketNumber) || !storedShows.containsKey(showNumber)) {
+                        continue;
+                    }
+                    for (Ticket ticket : this.read(showNumber).getTickets()) {
+                        if (ticket.getTicketNumber().equals(ticketNumber)) {
+                            return ticket;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to look up ticket " + ticketNumber, e);
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized List<Ticket> findStoredBookings(long phoneNumber) {
+        Path index = this.phoneIndexOf(phoneNumber);
+        List<Ticket> bookings = new ArrayList<>();
+        try {
+            if (!Files.exists(index)) {
+                return bookings;
+            }
+            LinkedHashSet<Integer> showNumbers = new LinkedHashSet<>();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+                long numOfEntries = Files.size(index) / PHONE_INDEX_ENTRY_SIZE;
+                for (long i = 0; i < numOfEntries; i++) {
+                    long entryPhoneNumber = in.readLong();
+                    int showNumber = in.readInt();
+                    if (entryPhoneNumber == phoneNumber && storedShows.containsKey(showNumber)) {
+                        showNumbers.add(showNumber);
+                    }
+                }
+            }
+            for (int showNumber : showNumbers) {
+                for (Ticket ticket : this.read(showNumber).getTickets()) {
+                    if (Long.parseLong(ticket.getPhoneNumber()) == phoneNumber) {
+                        bookings.add(ticket);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to look up bookings of " + phoneNumber, e);
+        }
+        return bookings;
+    }
+
+    /**
+     * Evicts the least recently used closed shows until at most the capacity of closed shows is in memory
+     *
+     * @return The number of shows evicted
+     */
+    public synchronized int evictColdShows() {
+        return this.evictColdShows(null);
+    }
+
+    private int evictColdShows(Show showToKeep) {
+        int evicted = 0;
+        Iterator<Show> iterator = closedShows.values().iterator();
+        while (closedShows.size() > capacity && iterator.hasNext()) {
+            Show show = iterator.next();
+            if (show == showToKeep) {
+                continue;
+            }
+            synchronized (show) {
+                try {
+                    this.save(show);
+                    if (indexedShows.add(show.getNumber())) {
+                        this.index(show);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to evict show " + show.getNumber(), e);
+                }
+                synchronized (tickets) {
+                    for (Ticket ticket : show.getTickets()) {
+                        tickets.remove(ticket.getTicketNumber());
+                        bookingsByPhone.remove(Long.parseLong(ticket.getPhoneNumber()), ticket);
+                    }
+                }
+                storedShows.put(show.getNumber(), new ShowStats(show));
+            }
+            iterator.remove();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    private Path pathOf(int showNumber) {
+        return directory.resolve("show-" + showNumber + ".bin");
+    }
+
+    private Path ticketIndexOf(UUID ticketNumber) {
+        return directory.resolve("tickets-" + Math.floorMod(ticketNumber.hashCode(), INDEX_BUCKETS) + ".idx");
+    }
+
+    private Path phoneIndexOf(long phoneNumber) {
+        return directory.resolve("phones-" + Math.floorMod(Long.hashCode(phoneNumber), INDEX_BUCKETS) + ".idx");
+    }
+
+    /**
+     * Appends the tickets of a show to the index files, opening each bucket once
+     *
+     * @param show The show to index
+     * @throws IOException if an index file cannot be written
+     */
+    private void index(Show show) throws IOException {
+        HashMap<Path, List<Ticket>> ticketsByIndex = new HashMap<>();
+        HashMap<Path, List<Ticket>> ticketsByPhoneIndex = new HashMap<>();
+        for (Ticket ticket : show.getTickets()) {
+            ticketsByIndex.computeIfAbsent(this.ticketIndexOf(ticket.getTicketNumber()), k -> new ArrayList<>())
+                    .add(ticket);
+            ticketsByPhoneIndex.computeIfAbsent(this.phoneIndexOf(Long.parseLong(ticket.getPhoneNumber())),
+                    k -> new ArrayList<>()).add(ticket);
+        }
+        for (Map.Entry<Path, List<Ticket>> entry : ticketsByIndex.entrySet()) {
+            try (DataOutputStream out = this.openIndex(entry.getKey())) {
+                for (Ticket ticket : entry.getValue()) {
+                    out.writeLong(ticket.getTicketNumber().getMostSignificantBits());
+                    out.writeLong(ticket.getTicketNumber().getLeastSignificantBits());
+                    out.writeInt(show.getNumber());
+                }
+            }
+        }
+        for (Map.Entry<Path, List<Ticket>> entry : ticketsByPhoneIndex.entrySet()) {
+            try (DataOutputStream out = this.openIndex(entry.getKey())) {
+                for (Ticket ticket : entry.getValue()) {
+                    out.writeLong(Long.parseLong(ticket.getPhoneNumber()));
+                    out.writeInt(show.getNumber());
+                }
+            }
+        }
+    }
+
+    private DataOutputStream openIndex(Path index) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(index,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    private void save(Show show) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(this.pathOf(show.getNumber()))))) {
+            out.writeInt(show.getNumber());
+            out.writeInt(show.getNumOfRows());
+            out.writeInt(show.getSeatsPerRow());
+            out.writeInt(show.getCancellationWindow());
+            out.writeInt(show.getTicketsSold());
+            out.writeInt(show.getCancellations());
+            out.writeInt(show.getTickets().size());
+            for (Ticket ticket : show.getTickets()) {
+                out.writeLong(ticket.getTicketNumber().getMostSignificantBits());
+                out.writeLong(ticket.getTicketNumber().getLeastSignificantBits());
+                out.writeUTF(ticket.getPhoneNumber());
+                out.writeLong(ticket.getBookingTime());
+                out.writeLong(ticket.getCancellationDeadline());
+                out.writeShort(ticket.getSeatIndexes().length);
+                for (short seatIndex : ticket.getSeatIndexes()) {
+                    out.writeShort(seatIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads an evicted show from disk without loading it back, e.g. to answer a lookup
+     *
+     * @param showNumber The show number
+     * @return The show and its tickets, which are not in the tickets map or the phone number index
+     */
+    private Show readStoredShow(int showNumber) {
+        try {
+            return this.read(showNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read show " + showNumber, e);
+        }
+    }
+
+    private Show read(int showNumber) throws IOException {
+        Show show;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(this.pathOf(showNumber))))) {
+            int number = in.readInt();
+            int numOfRows = in.readInt();
+            int seatsPerRow = in.readInt();
+            show = new Show(number, AdminCommandHandler.createSeats(numOfRows, seatsPerRow), numOfRows, seatsPerRow,
+                    new ArrayList<>(), in.readInt());
+            int ticketsSold = in.readInt();
+            int cancellations = in.readInt();
+            int numOfTickets = in.readInt();
+            for (int i = 0; i < numOfTickets; i++) {
+                UUID ticketNumber = new UUID(in.readLong(), in.readLong());
+                String phoneNumber = in.readUTF();
+                long bookingTime = in.readLong();
+                long cancellationDeadline = in.readLong();
+                short[] seatIndexes = new short[in.readShort()];
+                for (int j = 0; j < seatIndexes.length; j++) {
+                    seatIndexes[j] = in.readShort();
+                }
+                Ticket ticket = new Ticket(phoneNumber, ticketNumber, seatIndexes, bookingTime, show);
+                ticket.setCancellationDeadline(cancellationDeadline);
+                // Only closed shows are evicted, and their tickets are final
+                ticket.setFinalized(true);
+                show.addBooking(ticket);
+            }
+            show.setTicketsSold(ticketsSold);
+            show.setCancellations(cancellations);
+            show.setClosed(true);
+        }
+        return show;
+    }
+
+    private Show load(int showNumber) throws IOException {
+        Show show = this.read(showNumber);
+        synchronized (tickets) {
+            for (Ticket ticket : show.getTickets()) {
+                tickets.put(ticket.getTicketNumber(), ticket);
+                bookingsByPhone.add(Long.parseLong(ticket.getPhoneNumber()), ticket);
+            }
+        }
+        storedShows.remove(showNumber);
+        Files.delete(this.pathOf(showNumber));
+        return show;
+    }
+}
@@ -0,0 +1,86 @@
+package utility;
+
+import objects.Show;
+import objects.ShowStats;
+import objects.Ticket;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository that keeps every show in memory in a hash map.
+ * Repositories on the same map lock the map instead of themselves, so they can be used side by side.
+ */
+public class InMemoryShowRepository implements ShowRepository {
+    private final HashMap<Integer, Show> shows;
+
+    /**
+     * Creates a repository on top of a show map
+     *
+     * @param shows The map of shows by show number, which may be shared with other repositories
+     */
+    public InMemoryShowRepository(HashMap<Integer, Show> shows) {
+        this.shows = shows;
+    }
+
+    @Override
+    public Show get(int showNumber) {
+        synchronized (shows) {
+            return shows.get(showNumber);
+        }
+    }
+
+    @Override
+    public boolean contains(int showNumber) {
+        synchronized (shows) {
+            return shows.containsKey(showNumber);
+        }
+    }
+
+    @Override
+    public void add(Show show) {
+        synchronized (shows) {
+            shows.put(show.getNumber(), show);
+        }
+    }
+
+    @Override
+    public void markClosed(Show show) {
+        // Every show stays in memory
+    }
+
+    @Override
+    public int size() {
+        synchronized (shows) {
+            return shows.size();
+        }
+    }
+
+    @Override
+    public List<Show> getAll() {
+        synchronized (shows) {
+            return new ArrayList<>(shows.values());
+        }
+    }
+
+    @Override
+    public List<ShowStats> getAllStats() {
+        List<ShowStats> stats = new ArrayList<>();
+        for (Show show : this.getAll()) {
+            stats.add(new ShowStats(show));
+        }
+        return stats;
+    }
+
+    @Override
+    public Ticket findStoredTicket(UUID ticketNumber) {
+        return null;
+    }
+
+    @Override
+    public List<Ticket> findStoredBookings(long phoneNumber) {
+        return new ArrayList<>();
+    }
+}
@@ -0,0 +1,162 @@
+package utility;
+
+import objects.Ticket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of live tickets by buyer phone number across all shows.
+ * Phone numbers are kept as primitive longs in an open addressing table. A phone number with a single ticket, the
+ * common case, costs a long and a reference to the ticket instead of a String and a boxed map node; only a phone
+ * number with more tickets holds a list.
+ */
+public class PhoneNumberIndex {
+    // Phone numbers are never negative, so -1 marks an empty slot
+    private static final long EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+    // Either the only ticket of the phone number or an ArrayList of its tickets
+    private Object[] values;
+    private int size;
+
+    public PhoneNumberIndex() {
+        this.allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns the number of phone numbers that have at least one live ticket
+     *
+     * @return The number of phone numbers in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the live tickets booked under a phone number
+     *
+     * @param phoneNumber The phone number to look up
+     * @return The tickets for the phone number, or an empty list if there are none
+     */
+    public List<Ticket> get(long phoneNumber) {
+        int slot = this.find(phoneNumber);
+        if (keys[slot] == EMPTY) {
+            return Collections.emptyList();
+        }
+        if (values[slot] instanceof Ticket) {
+            return Collections.singletonList((Ticket) values[slot]);
+        }
+        return Collections.unmodifiableList(ticketsAt(slot));
+    }
+
+    /**
+     * Adds a ticket under a phone number
+     *
+     * @param phoneNumber The phone number of the buyer
+     * @param ticket The ticket to add
+     */
+    public void add(long phoneNumber, Ticket ticket) {
+        int slot = this.find(phoneNumber);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = phoneNumber;
+            values[slot] = ticket;
+            size++;
+        } else if (values[slot] instanceof Ticket) {
+            // Promote to a list on the second ticket
+            ArrayList<Ticket> tickets = new ArrayList<>(2);
+            tickets.add((Ticket) values[slot]);
+            tickets.add(ticket);
+            values[slot] = tickets;
+        } else {
+            ticketsAt(slot).add(ticket);
+        }
+        // Keep the load factor at or below 1/2 so that probe sequences stay short
+        if (size * 2 > keys.length) {
+            this.resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes a ticket from a phone number
+     *
+     * @param phoneNumber The phone number of the buyer
+     * @param ticket The ticket to remove
+     */
+    public void remove(long phoneNumber, Ticket ticket) {
+        int slot = this.find(phoneNumber);
+        if (keys[slot] == EMPTY) {
+            return;
+        }
+        if (values[slot] instanceof Ticket) {
+            if (values[slot] != ticket) {
+                return;
+            }
+        } else {
+            ArrayList<Ticket> tickets = ticketsAt(slot);
+            tickets.remove(ticket);
+            if (tickets.size() == 1) {
+                values[slot] = tickets.get(0);
+            }
+            if (!tickets.isEmpty()) {
+                return;
+            }
+        }
+        // Shift the following entries back so that lookups never stop early at the freed slot
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int i = (hole + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = null;
+        size--;
+    }
+
+    private int find(long phoneNumber) {
+        int mask = keys.length - 1;
+        int slot = hash(phoneNumber) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != phoneNumber) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        this.allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = this.find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArrayList<Ticket> ticketsAt(int slot) {
+        return (ArrayList<Ticket>) values[slot];
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new Object[capacity];
+    }
+
+    private static int hash(long phoneNumber) {
+        // Spread the bits as phone numbers are often sequential
+        long h = phoneNumber * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
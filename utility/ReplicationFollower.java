@@ -0,0 +1,280 @@
+package utility;
+
+import exceptions.BookingException;
+import exceptions.InvalidSetupException;
+import exceptions.NoSuchShowException;
+import exceptions.NoSuchTicketException;
+import objects.Show;
+import objects.Ticket;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.UUID;
+
+/**
+ * Read-only replica of a ReplicationLeader's shows and bookings.
+ * Records from the leader are applied in the background, while Availability, View, Dashboard, MyBookings and
+ * FindSeats are served from the local state.
+ */
+public class ReplicationFollower implements Closeable {
+    private static final long RECONNECT_MILLIS = 1000;
+
+    private final String host;
+    private final int port;
+    private HashMap<Integer, Show> shows;
+    private CommandProcessor commandProcessor;
+    private AdminCommandHandler adminCommandHandler;
+    private BuyerCommandHandler buyerCommandHandler;
+    private long appliedSequence;
+    private long leaderSequence;
+    private long lagMillis;
+    private boolean isConnected;
+    private Thread receiver;
+    // The connection to the leader, closed by close to stop the receiver
+    private Socket socket;
+    private boolean isRunning = true;
+
+    public ReplicationFollower(String host, int port) {
+        this.host = host;
+        this.port = port;
+        this.resetState();
+    }
+
+    public synchronized long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    public synchronized long getLeaderSequence() {
+        return leaderSequence;
+    }
+
+    public synchronized Show getShow(int showNumber) {
+        return shows.get(showNumber);
+    }
+
+    /**
+     * Starts following the leader in the background
+     */
+    public synchronized void start() {
+        receiver = new Thread(this::followLeader, "replication-follower");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    /**
+     * Disconnects from the leader and stops following it.
+     * If the calling thread is interrupted, it stops waiting for the receiver and keeps its interrupt status.
+     */
+    @Override
+    public void close() {
+        Thread stopped;
+        synchronized (this) {
+            isRunning = false;
+            stopped = receiver;
+            try {
+                if (socket != null) {
+                    socket.close();
+                }
+            } catch (IOException e) {
+                // The receiver stops on its next read either way
+            }
+        }
+        if (stopped != null) {
+            stopped.interrupt();
+            try {
+                stopped.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Executes a single command line against the local state and prints its result
+     *
+     * @param command The command line, e.g. Availability 1
+     * @param out The stream to print the result to
+     */
+    public synchronized void execute(String command, PrintStream out) {
+        switch (command.split(" ")[0]) {
+            case "Setup":
+            case "Book":
+            case "Cancel":
+            case "CancelShow":
+            case "CloseShow":
+            case "Waitlist":
+                out.println("This is a read-only follower, send the command to the leader");
+                break;
+            case "ReplicationStatus":
+                out.println("Connected to leader: " + isConnected);
+                out.println("Applied sequence: " + appliedSequence + "/" + leaderSequence);
+                out.println("Replication lag: " + (leaderSequence - appliedSequence) + " records, " + lagMillis +
+                        " ms");
+                break;
+            default:
+                commandProcessor.execute(command, out);
+                break;
+        }
+    }
+
+    private void followLeader() {
+        while (this.isRunning()) {
+            try (Socket socket = new Socket(host, port)) {
+                if (!this.setSocket(socket)) {
+                    return;
+                }
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                        StandardCharsets.UTF_8));
+                Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                writer.write("FROM " + this.getAppliedSequence() + "\n");
+                writer.flush();
+                this.setConnected(true);
+                String message;
+                while ((message = reader.readLine()) != null) {
+                    this.receive(message, reader);
+                }
+            } catch (IOException e) {
+                // Retry below
+            }
+            this.setConnected(false);
+            if (!this.setSocket(null)) {
+                return;
+            }
+            try {
+                Thread.sleep(RECONNECT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void receive(String message, BufferedReader reader) throws IOException {
+        String[] fields = message.split(" ", 4);
+        switch (fields[0]) {
+            case "SNAPSHOT": {
+                int numOfRecords = Integer.parseInt(fields[2]);
+                String[] records = new String[numOfRecords];
+                for (int i = 0; i < numOfRecords; i++) {
+                    records[i] = reader.readLine();
+                    if (records[i] == null) {
+                        throw new IOException("Snapshot ended early");
+                    }
+                }
+                synchronized (this) {
+                    this.resetState();
+                    for (String record : records) {
+                        this.apply(record);
+                    }
+                    appliedSequence = Long.parseLong(fields[1]);
+                    leaderSequence = Math.max(leaderSequence, appliedSequence);
+                    lagMillis = 0;
+                }
+                break;
+            }
+            case "LOG":
+                synchronized (this) {
+                    this.apply(fields[3]);
+                    appliedSequence = Long.parseLong(fields[1]);
+                    leaderSequence = Math.max(leaderSequence, appliedSequence);
+                    lagMillis = Math.max(0, System.currentTimeMillis() - Long.parseLong(fields[2]));
+                }
+                break;
+            case "HEARTBEAT":
+                synchronized (this) {
+                    leaderSequence = Long.parseLong(fields[1]);
+                    if (appliedSequence == leaderSequence) {
+                        lagMillis = 0;
+                    }
+                }
+                break;
+            default:
+                throw new IOException("Unknown message: " + message);
+        }
+    }
+
+    /**
+     * Applies a record that the leader has already accepted
+     *
+     * @param record The record, e.g. Book 1 98244587 A1,A2,A3 [UUID] [booking time]
+     */
+    private void apply(String record) {
+        String[] fields = record.split(" ");
+        try {
+            switch (fields[0]) {
+                case "Setup":
+                    adminCommandHandler.setup(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                            Integer.parseInt(fields[3]), Integer.parseInt(fields[4]));
+                    break;
+                case "Book":
+                    buyerCommandHandler.book(Integer.parseInt(fields[1]), fields[2], fields[3],
+                            UUID.fromString(fields[4]), Long.parseLong(fields[5]));
+                    break;
+                case "Cancel":
+                    buyerCommandHandler.forceCancel(UUID.fromString(fields[1]));
+                    break;
+                case "CancelShow":
+                    adminCommandHandler.cancelShow(Integer.parseInt(fields[1]));
+                    break;
+                case "CloseShow":
+                    adminCommandHandler.closeShow(Integer.parseInt(fields[1]));
+                    break;
+                case "ShowState": {
+                    // Only sent in snapshots
+                    Show show = shows.get(Integer.parseInt(fields[1]));
+                    synchronized (show) {
+                        show.setTicketsSold(Integer.parseInt(fields[2]));
+                        show.setCancellations(Integer.parseInt(fields[3]));
+                    }
+                    if (Boolean.parseBoolean(fields[4])) {
+                        adminCommandHandler.closeShow(show.getNumber());
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown record: " + record);
+            }
+        } catch (InvalidSetupException | NoSuchShowException | BookingException | NoSuchTicketException e) {
+            // This should not happen as the leader has applied the same records
+            System.err.println("Replication: could not apply " + record + ": " + e);
+        }
+    }
+
+    private void resetState() {
+        shows = new HashMap<>();
+        HashMap<UUID, Ticket> tickets = new HashMap<>();
+        PhoneNumberIndex bookingsByPhone = new PhoneNumberIndex();
+        ContiguousSeatIndex showsBySeatsTogether = new ContiguousSeatIndex();
+        adminCommandHandler = new AdminCommandHandler(shows, tickets, bookingsByPhone, showsBySeatsTogether);
+        buyerCommandHandler = new BuyerCommandHandler(shows, tickets, bookingsByPhone, Clock.systemUTC(),
+                showsBySeatsTogether);
+        commandProcessor = new CommandProcessor(shows, adminCommandHandler, buyerCommandHandler);
+    }
+
+    private synchronized void setConnected(boolean connected) {
+        isConnected = connected;
+    }
+
+    private synchronized boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Sets the connection that close should close
+     *
+     * @param socket The connection to the leader, or null once it is closed
+     * @return The boolean value whether the follower is still running
+     */
+    private synchronized boolean setSocket(Socket socket) {
+        this.socket = socket;
+        return isRunning;
+    }
+}
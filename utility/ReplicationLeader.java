@@ -0,0 +1,228 @@
+package utility;
+
+import objects.Show;
+import objects.Ticket;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Streams the ordered Setup, Book, Cancel, CancelShow and CloseShow records of this process to followers over a local socket.
+ * Only the latest records are kept as a log. A follower that is too far behind first receives a snapshot, which is
+ * read from the shows when it is sent: the setup of every show, the booking of every live ticket and a
+ * "ShowState [show number] [tickets sold] [cancellations] [closed]" record per show, and then the log from that point
+ * on. Mutations are applied and published under the mutation lock, so that a snapshot never sees a mutation that
+ * has not been published yet.
+ *
+ * Protocol, one line per message:
+ * the follower sends "FROM [sequence]" with the last sequence it applied, then the leader sends
+ * "SNAPSHOT [sequence] [number of records]" followed by the records, "LOG [sequence] [publish time] [record]" and
+ * "HEARTBEAT [sequence] [time]" when there is nothing to send.
+ */
+public class ReplicationLeader implements Closeable {
+    static final long HEARTBEAT_MILLIS = 1000;
+
+    private final ServerSocket serverSocket;
+    private final int maxLogSize;
+    private final ShowRepository shows;
+    // Shared by the mutations from being applied until they are published, and taken exclusively by snapshots
+    private final ReentrantReadWriteLock mutationLock = new ReentrantReadWriteLock();
+    // Log of the latest records, where the first entry has sequence logStart
+    private final ArrayList<LogEntry> log = new ArrayList<>();
+    private long logStart = 1;
+    private long sequence;
+    private volatile boolean isRunning = true;
+
+    /**
+     * Listens for followers on localhost
+     *
+     * @param port The port to listen on, or 0 for any free port
+     * @param maxLogSize The number of latest records to keep for followers to catch up from
+     * @param shows The shows to read snapshots from
+     * @throws IOException if the port cannot be bound
+     */
+    public ReplicationLeader(int port, int maxLogSize, ShowRepository shows) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.maxLogSize = maxLogSize;
+        this.shows = shows;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the lock to hold from applying a mutation until it is published, which many mutations can hold at once
+     *
+     * @return The shared side of the mutation lock
+     */
+    public Lock getMutationLock() {
+        return mutationLock.readLock();
+    }
+
+    /**
+     * Starts accepting followers in the background
+     */
+    public void start() {
+        Thread acceptor = new Thread(this::acceptFollowers, "replication-leader");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Appends an applied mutation to the log and wakes up the followers
+     *
+     * @param record The record of the mutation, e.g. Setup 1 5 10 2
+     */
+    public synchronized void publish(String record) {
+        sequence++;
+        log.add(new LogEntry(System.currentTimeMillis(), record));
+        // Trim in halves so that trimming stays amortised O(1) per record
+        if (log.size() >= 2 * maxLogSize) {
+            int trimmed = log.size() - maxLogSize;
+            log.subList(0, trimmed).clear();
+            logStart += trimmed;
+        }
+        this.notifyAll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        isRunning = false;
+        serverSocket.close();
+        synchronized (this) {
+            this.notifyAll();
+        }
+    }
+
+    private void acceptFollowers() {
+        while (isRunning) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread sender = new Thread(() -> this.serveFollower(socket), "replication-sender");
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (isRunning) {
+                    System.err.println("Replication: failed to accept follower: " + e);
+                }
+            }
+        }
+    }
+
+    private void serveFollower(Socket socket) {
+        try (socket) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                    StandardCharsets.UTF_8));
+            String request = reader.readLine();
+            if (request == null || !request.startsWith("FROM ")) {
+                return;
+            }
+            long position = Long.parseLong(request.substring("FROM ".length()));
+            while (isRunning) {
+                List<String> messages = new ArrayList<>();
+                position = this.collectMessages(position, messages);
+                if (position == -1) {
+                    position = this.collectSnapshot(messages);
+                }
+                for (String message : messages) {
+                    writer.write(message);
+                    writer.write('\n');
+                }
+                writer.flush();
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            // The follower reconnects and resumes from the last sequence it applied
+        }
+    }
+
+    /**
+     * Waits for records after a follower's position and collects the messages to send
+     *
+     * @param position The last sequence sent to the follower
+     * @param messages The list to add the messages to
+     * @return The new position of the follower, or -1 if it needs a snapshot
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private synchronized long collectMessages(long position, List<String> messages) throws InterruptedException {
+        if (position == sequence) {
+            this.wait(HEARTBEAT_MILLIS);
+        }
+        if (position == sequence) {
+            messages.add("HEARTBEAT " + sequence + " " + System.currentTimeMillis());
+            return position;
+        }
+        if (position < logStart - 1 || position > sequence) {
+            // The records the follower needs are no longer in the log, or it followed another leader
+            return -1;
+        }
+        for (int i = (int) (position + 1 - logStart); i < log.size(); i++) {
+            LogEntry entry = log.get(i);
+            messages.add("LOG " + (logStart + i) + " " + entry.publishTime + " " + entry.record);
+        }
+        return sequence;
+    }
+
+    /**
+     * Reads a snapshot from the shows while no mutation is in progress
+     *
+     * @param messages The list to add the messages to
+     * @return The sequence that the snapshot is at
+     */
+    private long collectSnapshot(List<String> messages) {
+        List<String> records = new ArrayList<>();
+        long snapshotSequence;
+        mutationLock.writeLock().lock();
+        try {
+            List<String> showStates = new ArrayList<>();
+            for (Show show : shows.getAll()) {
+                synchronized (show) {
+                    records.add("Setup " + show.getNumber() + " " + show.getNumOfRows() + " " +
+                            show.getSeatsPerRow() + " " + show.getCancellationWindow());
+                    for (Ticket ticket : show.getTickets()) {
+                        records.add(BookingJournal.bookRecord(ticket));
+                    }
+                    // Replaying the live bookings only counts those, so the counters are set last
+                    showStates.add("ShowState " + show.getNumber() + " " + show.getTicketsSold() + " " +
+                            show.getCancellations() + " " + show.isClosed());
+                }
+            }
+            records.addAll(showStates);
+            snapshotSequence = this.getSequence();
+        } finally {
+            mutationLock.writeLock().unlock();
+        }
+        messages.add("SNAPSHOT " + snapshotSequence + " " + records.size());
+        messages.addAll(records);
+        return snapshotSequence;
+    }
+
+    private static class LogEntry {
+        private final long publishTime;
+        private final String record;
+
+        private LogEntry(long publishTime, String record) {
+            this.publishTime = publishTime;
+            this.record = record;
+        }
+    }
+}
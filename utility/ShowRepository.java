@@ -0,0 +1,83 @@
+package utility;
+
+import objects.Show;
+import objects.ShowStats;
+import objects.Ticket;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Store of every show that the command handlers look shows up in.
+ * An implementation may keep only some shows in memory, in which case the tickets of the other shows are no longer
+ * in the tickets map or the phone number index and are found through this repository instead.
+ */
+public interface ShowRepository {
+    /**
+     * Returns a show, loading it into memory if needed
+     *
+     * @param showNumber The show number
+     * @return The show, or null if the show does not exist
+     */
+    Show get(int showNumber);
+
+    /**
+     * Checks if a show exists
+     *
+     * @param showNumber The show number
+     * @return The boolean value whether the show exists, in memory or not
+     */
+    boolean contains(int showNumber);
+
+    /**
+     * Adds a newly set up show
+     *
+     * @param show The show to add
+     */
+    void add(Show show);
+
+    /**
+     * Records that a show has been closed, after which the repository may evict it from memory.
+     * Must not be called while holding the monitor of the show.
+     *
+     * @param show The closed show
+     */
+    void markClosed(Show show);
+
+    /**
+     * Returns the number of shows
+     *
+     * @return The number of shows, in memory or not
+     */
+    int size();
+
+    /**
+     * Returns every show, where the shows that are not in memory are read without being loaded
+     *
+     * @return The shows
+     */
+    List<Show> getAll();
+
+    /**
+     * Returns the counters of every show, without reading the shows that are not in memory
+     *
+     * @return The counters of the shows
+     */
+    List<ShowStats> getAllStats();
+
+    /**
+     * Finds a ticket of a show that is not in memory
+     *
+     * @param ticketNumber The ticket number
+     * @return The ticket, or null if no show outside memory has it
+     */
+    Ticket findStoredTicket(UUID ticketNumber);
+
+    /**
+     * Finds the tickets of a buyer in the shows that are not in memory
+     *
+     * @param phoneNumber The phone number of the buyer as a number
+     * @return The tickets, which may include numbers that only differ by leading zeros
+     */
+    List<Ticket> findStoredBookings(long phoneNumber);
+}
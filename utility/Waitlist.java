@@ -0,0 +1,74 @@
+package utility;
+
+import objects.Ticket;
+import objects.WaitlistRequest;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Waitlist of a show, served by priority and then by arrival order.
+ * Requests are grouped by the number of seats they need, so the first request that fits a number of freed seats is
+ * found by comparing the head of each group that fits instead of scanning every request.
+ */
+public class Waitlist {
+    private static final Comparator<WaitlistRequest> SERVING_ORDER =
+            Comparator.comparingInt(WaitlistRequest::getPriority).reversed()
+                    .thenComparingLong(WaitlistRequest::getArrival);
+
+    private final TreeMap<Integer, PriorityQueue<WaitlistRequest>> requestsBySeatCount = new TreeMap<>();
+    private long nextArrival;
+    private int size;
+
+    /**
+     * Adds a request to the end of its priority
+     *
+     * @param phoneNumber The phone number of the buyer
+     * @param numOfSeats The number of seats needed
+     * @param priority The priority of the request, where higher is served first
+     * @param onAssigned The callback to notify with the new ticket once seats are assigned
+     * @return The newly created request
+     */
+    public synchronized WaitlistRequest add(String phoneNumber, int numOfSeats, int priority,
+                                            Consumer<Ticket> onAssigned) {
+        WaitlistRequest request = new WaitlistRequest(phoneNumber, numOfSeats, priority, nextArrival++, onAssigned);
+        requestsBySeatCount.computeIfAbsent(numOfSeats, k -> new PriorityQueue<>(SERVING_ORDER)).add(request);
+        size++;
+        return request;
+    }
+
+    /**
+     * Removes and returns the first request that needs at most a given number of seats
+     *
+     * @param numOfSeats The number of free seats
+     * @return The first request that fits, or null if there is none
+     */
+    public synchronized WaitlistRequest pollFirstFitting(int numOfSeats) {
+        PriorityQueue<WaitlistRequest> first = null;
+        for (PriorityQueue<WaitlistRequest> requests : requestsBySeatCount.headMap(numOfSeats, true).values()) {
+            if (first == null || SERVING_ORDER.compare(requests.peek(), first.peek()) < 0) {
+                first = requests;
+            }
+        }
+        if (first == null) {
+            return null;
+        }
+        WaitlistRequest request = first.poll();
+        if (first.isEmpty()) {
+            requestsBySeatCount.remove(request.getNumOfSeats());
+        }
+        size--;
+        return request;
+    }
+
+    /**
+     * Returns the number of requests waiting
+     *
+     * @return The number of requests in the waitlist
+     */
+    public synchronized int size() {
+        return size;
+    }
+}